@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of chunks in flight against a single storage endpoint and tunes the limit from the chunk timings
+ * with additive increase and multiplicative decrease. Chunks are observed in rounds of as many chunks as the current
+ * limit. The limit grows by one after a round whose throughput is higher than the one of the previous round and is
+ * halved when the endpoint throttles a chunk or when a chunk takes far longer per byte than the fastest chunks seen.
+ * Chunks much smaller than the largest chunk seen, like the last chunk of a file, are not sampled as their fixed
+ * request overhead dominates their time per byte. When tuning is disabled the limit stays at the maximum.
+ *
+ * Streams moving a whole file hold a slot for the whole transfer and give no comparable timing, so they are only
+ * bounded by the maximum together with the chunks and the tuned limit applies to the chunks alone.
+ */
+public class AimdConcurrencyController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AimdConcurrencyController.class);
+
+    /*
+    Minimum relative throughput gain of a round to keep increasing the limit
+     */
+    private static final double THROUGHPUT_GAIN = 0.05;
+
+    /*
+    A chunk taking this many times the baseline latency per byte is treated as a sign of congestion
+     */
+    private static final double LATENCY_SPIKE_FACTOR = 3;
+
+    /*
+    Rate at which the baseline latency drifts up towards the observed latency so a permanent slow down of the endpoint
+    is not taken as a spike forever
+     */
+    private static final double BASELINE_DRIFT = 0.01;
+
+    /*
+    Chunks smaller than this fraction of the largest chunk seen are not sampled
+     */
+    private static final double MIN_SAMPLE_FRACTION = 0.5;
+
+    private final String endpoint;
+    private final boolean adaptive;
+
+    /*
+    Waiting is done on a ReentrantLock condition so waiting chunks do not pin the carriers of virtual threads
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private int maxLimit;
+
+    private int limit;
+    private int inFlight = 0;
+    private int streams = 0;
+    private long largestChunkBytes = 0;
+
+    private double baselineNanosPerByte = -1;
+    private double lastRoundThroughput = -1;
+    private long roundBytes = 0;
+    private int roundChunks = 0;
+    private long roundStartNanos = System.nanoTime();
+    // Completions since the last decrease. The limit is not decreased again until a full round has completed
+    private long sinceDecrease = Integer.MAX_VALUE;
+
+    /**
+     * @param endpoint key of the endpoint, used for logging
+     * @param adaptive whether the limit is tuned. If not, the limit is always the maximum
+     * @param initialLimit number of chunks allowed in flight at the start
+     * @param maxLimit upper bound of the limit
+     */
+    public AimdConcurrencyController(String endpoint, boolean adaptive, int initialLimit, int maxLimit) {
+        this.endpoint = endpoint;
+        this.adaptive = adaptive;
+        this.maxLimit = Math.max(maxLimit, 1);
+        this.limit = adaptive ? Math.max(1, Math.min(initialLimit, this.maxLimit)) : this.maxLimit;
+    }
+
+    /**
+     * Waits until a chunk can be started against the endpoint
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= limit || inFlight + streams >= maxLimit) {
+                released.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a stream can be started against the endpoint. Streams are only bounded by the maximum
+     */
+    public void acquireStream() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight + streams >= maxLimit) {
+                released.await();
+            }
+            streams++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the slot of a stream
+     *
+     * @param throttled whether the endpoint rejected the stream because of its load
+     */
+    public void releaseStream(boolean throttled) {
+        lock.lock();
+        try {
+            streams--;
+            sinceDecrease++;
+            if (adaptive && throttled) {
+                decrease("the endpoint throttled a stream");
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the permit of a chunk and records how the chunk went
+     *
+     * @param bytes size of the chunk. 0 if the chunk failed
+     * @param nanos time taken by the requests of the chunk, excluding the waits for bandwidth
+     * @param throttled whether the endpoint rejected the chunk because of its load
+     */
+    public void release(long bytes, long nanos, boolean throttled) {
+        lock.lock();
+        try {
+            inFlight--;
+            sinceDecrease++;
+            if (!adaptive) {
+                released.signalAll();
+                return;
+            }
+            largestChunkBytes = Math.max(largestChunkBytes, bytes);
+            if (throttled) {
+                decrease("the endpoint throttled a chunk");
+            } else if (bytes > 0 && bytes >= MIN_SAMPLE_FRACTION * largestChunkBytes) {
+                double nanosPerByte = nanos * 1.0 / bytes;
+                if (baselineNanosPerByte < 0 || nanosPerByte < baselineNanosPerByte) {
+                    baselineNanosPerByte = nanosPerByte;
+                } else {
+                    baselineNanosPerByte += BASELINE_DRIFT * (nanosPerByte - baselineNanosPerByte);
+                }
+
+                if (nanosPerByte > LATENCY_SPIKE_FACTOR * baselineNanosPerByte) {
+                    decrease("chunk latency spiked");
+                } else {
+                    roundBytes += bytes;
+                    if (++roundChunks >= limit) {
+                        endRound();
+                    }
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the upper bound of the limit. The limit is lowered right away if it is above the new bound
+     */
+    public void setMaxLimit(int maxLimit) {
+        lock.lock();
+        try {
+            this.maxLimit = Math.max(maxLimit, 1);
+            limit = adaptive ? Math.min(limit, this.maxLimit) : this.maxLimit;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void endRound() {
+        long now = System.nanoTime();
+        double throughput = roundBytes * 1.0 / Math.max(now - roundStartNanos, 1);
+        if (limit < maxLimit && (lastRoundThroughput < 0 || throughput > lastRoundThroughput * (1 + THROUGHPUT_GAIN))) {
+            limit++;
+            logger.debug("Increased the concurrency of endpoint {} to {}", endpoint, limit);
+        }
+        lastRoundThroughput = throughput;
+        resetRound(now);
+    }
+
+    private void decrease(String reason) {
+        if (sinceDecrease < limit) {
+            return;
+        }
+        int decreased = Math.max(1, limit / 2);
+        if (decreased < limit) {
+            logger.info("Decreasing the concurrency of endpoint {} from {} to {} as {}", endpoint, limit, decreased,
+                    reason);
+            limit = decreased;
+        }
+        sinceDecrease = 0;
+        lastRoundThroughput = -1;
+        resetRound(System.nanoTime());
+    }
+
+    private void resetRound(long now) {
+        roundBytes = 0;
+        roundChunks = 0;
+        roundStartNanos = now;
+    }
+}
@@ -32,6 +32,30 @@ public class AppConfig {
     @org.springframework.beans.factory.annotation.Value("${consul.port}")
     Integer consulPort;
 
+    @org.springframework.beans.factory.annotation.Value("${agent.bandwidth.limit:0}")
+    long agentBandwidthLimit;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.bandwidth.storage.limit:0}")
+    long storageBandwidthLimit;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.bandwidth.transfer.limit:0}")
+    long transferBandwidthLimit;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.endpoint.max.concurrency:0}")
+    int endpointMaxConcurrency;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.endpoint.max.request.rate:0}")
+    long endpointMaxRequestRate;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.endpoint.concurrency.adaptive:false}")
+    boolean adaptiveEndpointConcurrency;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.endpoint.concurrency.initial:20}")
+    int initialEndpointConcurrency;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.endpoint.throttle.pause.ms:1000}")
+    long endpointThrottlePauseMillis;
+
     @Bean
     public MFTConsulClient mftConsulClient() {
         return new MFTConsulClient(consulHost, consulPort);
@@ -42,6 +66,17 @@ public class AppConfig {
         return new RPCParser();
     }
 
+    @Bean
+    public BandwidthShaper bandwidthShaper() {
+        return new BandwidthShaper(agentBandwidthLimit, storageBandwidthLimit, transferBandwidthLimit);
+    }
+
+    @Bean
+    public EndpointLimiterRegistry endpointLimiterRegistry() {
+        return new EndpointLimiterRegistry(endpointMaxConcurrency, endpointMaxRequestRate,
+                adaptiveEndpointConcurrency, initialEndpointConcurrency, endpointThrottlePauseMillis);
+    }
+
     @Bean
     public HttpTransferRequestsStore transferRequestStore() {
         return new HttpTransferRequestsStore();
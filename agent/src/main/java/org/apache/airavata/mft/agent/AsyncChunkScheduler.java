@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the chunks of a transfer through non blocking connectors. At most the window size of chunks are in flight and
+ * none of them holds a thread while its requests are outstanding. Failed chunks are retried after the backoff of the
+ * retry policy on the scheduler. Only the calling thread waits, for the window to free up and for the last chunk.
+ */
+public class AsyncChunkScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncChunkScheduler.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final int windowSize;
+    private final ChunkRetryPolicy retryPolicy;
+    private final AtomicInteger chunkRetries;
+
+    /**
+     * @param scheduler runs the retries
+     * @param windowSize maximum number of chunks in flight
+     * @param retryPolicy decides whether and when a failed chunk is retried
+     * @param chunkRetries counter of the retries of the transfer
+     */
+    public AsyncChunkScheduler(ScheduledExecutorService scheduler, int windowSize, ChunkRetryPolicy retryPolicy,
+                               AtomicInteger chunkRetries) {
+        this.scheduler = scheduler;
+        this.windowSize = Math.max(windowSize, 1);
+        this.retryPolicy = retryPolicy;
+        this.chunkRetries = chunkRetries;
+    }
+
+    /**
+     * Moves all the chunks provided by the iterator and blocks until the last one completes
+     *
+     * @return number of chunks moved
+     * @throws Exception the failure of the first chunk that ran out of retries
+     */
+    public int run(Iterator<? extends AsyncChunk> chunks) throws Exception {
+
+        Semaphore window = new Semaphore(windowSize);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int count = 0;
+
+        try {
+            while (chunks.hasNext() && failure.get() == null) {
+                // Taken before the permit so a failing iterator does not leave the window short of one
+                AsyncChunk chunk = chunks.next();
+                window.acquire();
+                if (failure.get() != null) {
+                    window.release();
+                    break;
+                }
+                count++;
+                attempt(chunk, 1, window, failure);
+            }
+        } finally {
+            // Chunks in flight are drained even on a failure so none of them outlives the transfer
+            window.acquireUninterruptibly(windowSize);
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof Exception) {
+            throw (Exception) error;
+        } else if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return count;
+    }
+
+    private void attempt(AsyncChunk chunk, int attempt, Semaphore window, AtomicReference<Throwable> failure) {
+        CompletableFuture<Void> future;
+        try {
+            future = chunk.start();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                window.release();
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                    error.getCause() : error;
+            if (failure.get() == null && retryPolicy.shouldRetry(attempt, cause)) {
+                chunkRetries.incrementAndGet();
+                long backoff = retryPolicy.backoffMillis(attempt, cause);
+                logger.warn("Chunk {} failed in attempt {}. Retrying in {} ms", chunk.getChunkIdx(), attempt, backoff,
+                        cause);
+                try {
+                    scheduler.schedule(() -> attempt(chunk, attempt + 1, window, failure), backoff,
+                            TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    failure.compareAndSet(null, cause);
+                    window.release();
+                }
+            } else {
+                failure.compareAndSet(null, cause);
+                window.release();
+            }
+        });
+    }
+
+    public interface AsyncChunk {
+
+        int getChunkIdx();
+
+        /**
+         * Starts an attempt to move the chunk. Called again for each retry
+         */
+        CompletableFuture<Void> start() throws Exception;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the bandwidth of the agent at three levels: the whole agent, each storage and each transfer. Bytes moved by a
+ * transfer are charged to its own bucket, to the buckets of its source and destination storages and to the agent
+ * bucket, and the transfer waits for the slowest of them. Limits are in bytes per second, 0 means unlimited, and all
+ * of them can be changed while transfers are running.
+ *
+ * The bucket of a storage is kept while a transfer uses the storage or as long as the storage has a limit of its own.
+ * Buckets of storages on the default limit are dropped with their last transfer, so the buckets do not pile up in an
+ * agent serving many storages over time.
+ */
+public class BandwidthShaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(BandwidthShaper.class);
+
+    private final TokenBucket agentBucket;
+    private final Map<String, StorageBucket> storageBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TransferBucket> transferBuckets = new ConcurrentHashMap<>();
+
+    private volatile long defaultStorageLimit;
+    private volatile long defaultTransferLimit;
+
+    public BandwidthShaper(long agentLimit, long defaultStorageLimit, long defaultTransferLimit) {
+        this.agentBucket = new TokenBucket(agentLimit);
+        this.defaultStorageLimit = defaultStorageLimit;
+        this.defaultTransferLimit = defaultTransferLimit;
+    }
+
+    public void setAgentLimit(long bytesPerSecond) {
+        logger.info("Setting agent bandwidth limit to {} bytes/s", bytesPerSecond);
+        agentBucket.setRate(bytesPerSecond);
+    }
+
+    /**
+     * @param storageKey key of the storage as produced by {@link #storageKey(String, String)}
+     */
+    public void setStorageLimit(String storageKey, long bytesPerSecond) {
+        logger.info("Setting bandwidth limit of storage {} to {} bytes/s", storageKey, bytesPerSecond);
+        storageBuckets.compute(storageKey, (key, storage) -> {
+            if (storage == null) {
+                storage = new StorageBucket(new TokenBucket(bytesPerSecond));
+            }
+            storage.limited = true;
+            storage.bucket.setRate(bytesPerSecond);
+            return storage;
+        });
+    }
+
+    /**
+     * Changes the limit of a running transfer. Has no effect if the transfer is not running in this agent
+     */
+    public void setTransferLimit(String transferId, long bytesPerSecond) {
+        TransferBucket transfer = transferBuckets.get(transferId);
+        if (transfer != null) {
+            logger.info("Setting bandwidth limit of transfer {} to {} bytes/s", transferId, bytesPerSecond);
+            transfer.bucket.setRate(bytesPerSecond);
+        } else {
+            logger.warn("Transfer {} is not running. Ignoring the bandwidth limit", transferId);
+        }
+    }
+
+    public void setDefaultStorageLimit(long bytesPerSecond) {
+        this.defaultStorageLimit = bytesPerSecond;
+    }
+
+    public void setDefaultTransferLimit(long bytesPerSecond) {
+        this.defaultTransferLimit = bytesPerSecond;
+    }
+
+    public static String storageKey(String storageType, String storageId) {
+        return storageType + ":" + storageId;
+    }
+
+    /**
+     * Registers a transfer with the storages it moves data between
+     *
+     * @param transferId id of the transfer
+     * @param storageKeys keys of the source and destination storages
+     * @return the shaping handle the transfer should charge its bytes to
+     */
+    public TransferShaping forTransfer(String transferId, String... storageKeys) {
+        List<TokenBucket> buckets = new ArrayList<>();
+        TransferBucket transfer = transferBuckets.compute(transferId, (id, registered) -> {
+            if (registered == null) {
+                registered = new TransferBucket(new TokenBucket(defaultTransferLimit));
+            }
+            registered.storageKeys.addAll(List.of(storageKeys));
+            return registered;
+        });
+        buckets.add(transfer.bucket);
+        for (String storageKey : storageKeys) {
+            StorageBucket storage = storageBuckets.compute(storageKey, (key, registered) -> {
+                if (registered == null) {
+                    registered = new StorageBucket(new TokenBucket(defaultStorageLimit));
+                }
+                registered.transfers++;
+                return registered;
+            });
+            buckets.add(storage.bucket);
+        }
+        buckets.add(agentBucket);
+        return new TransferShaping(buckets);
+    }
+
+    /**
+     * Removes the bucket of the transfer and the buckets of its storages no other transfer uses and that have no limit
+     * of their own
+     */
+    public void release(String transferId) {
+        TransferBucket transfer = transferBuckets.remove(transferId);
+        if (transfer == null) {
+            return;
+        }
+        for (String storageKey : transfer.storageKeys) {
+            storageBuckets.computeIfPresent(storageKey, (key, storage) ->
+                    --storage.transfers <= 0 && !storage.limited ? null : storage);
+        }
+    }
+
+    private static class StorageBucket {
+        private final TokenBucket bucket;
+        // Number of registrations of running transfers. Only changed while the map entry is computed
+        private int transfers = 0;
+        // Whether the storage has a limit of its own, which is kept without any transfers
+        private boolean limited = false;
+
+        private StorageBucket(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private static class TransferBucket {
+        private final TokenBucket bucket;
+        // Storages the transfer registered with, released with the transfer. Only changed while the entry is computed
+        private final List<String> storageKeys = new ArrayList<>();
+
+        private TransferBucket(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    public static class TransferShaping {
+
+        /*
+        Total time each thread waited for bandwidth, so the timings of chunks can leave the waits out
+         */
+        private static final ThreadLocal<long[]> waitedNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+        private final List<TokenBucket> buckets;
+
+        private TransferShaping(List<TokenBucket> buckets) {
+            this.buckets = buckets;
+        }
+
+        /**
+         * Charges the bytes to every level and waits until the most restrictive one allows them
+         */
+        public void acquire(long bytes) throws InterruptedException {
+            long waitNanos = reserve(bytes);
+            if (waitNanos > 0) {
+                waitedNanos.get()[0] += waitNanos;
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        /**
+         * @return total nanoseconds the calling thread waited for bandwidth in {@link #acquire(long)}
+         */
+        public static long getWaitedNanos() {
+            return waitedNanos.get()[0];
+        }
+
+        /**
+         * Charges the bytes to every level without waiting
+         *
+         * @return nanoseconds the caller should wait before moving more bytes
+         */
+        public long reserve(long bytes) {
+            long waitNanos = 0;
+            for (TokenBucket bucket : buckets) {
+                waitNanos = Math.max(waitNanos, bucket.reserve(bytes));
+            }
+            return waitNanos;
+        }
+
+        /**
+         * @return a stream charging every read to this transfer
+         */
+        public InputStream wrap(InputStream inputStream) {
+            return new FilterInputStream(inputStream) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        charge(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        charge(n);
+                    }
+                    return n;
+                }
+
+                private void charge(int bytes) throws InterruptedIOException {
+                    try {
+                        acquire(bytes);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.BufferPool;
+import org.apache.airavata.mft.core.api.PositionalIncomingConnector;
+import org.apache.airavata.mft.core.api.PositionalOutgoingConnector;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Copies between channel and positional connectors through pooled direct buffers. A file source is copied with
+ * {@link FileChannel#transferTo} when the bytes do not have to be seen by the agent, which lets the kernel move them
+ * without a copy into user space. Copies are done in slices so the caller can shape and account each slice.
+ */
+public class ChannelCopier {
+
+    private final int sliceSize;
+
+    /**
+     * @param sliceSize bytes moved between two notifications of the listener
+     */
+    public ChannelCopier(int sliceSize) {
+        this.sliceSize = sliceSize;
+    }
+
+    /**
+     * Copies a channel until its end
+     *
+     * @param inspect whether the listener needs the copied bytes. transferTo is only used when it does not
+     * @return number of bytes copied
+     */
+    public long copy(ReadableByteChannel source, WritableByteChannel target, boolean inspect, SliceListener listener)
+            throws Exception {
+
+        if (!inspect && source instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) source;
+            long position = fileChannel.position();
+            long size = fileChannel.size();
+            long copied = 0;
+            while (position < size) {
+                long n = fileChannel.transferTo(position, Math.min(sliceSize, size - position), target);
+                position += n;
+                copied += n;
+                listener.onSlice(null, n);
+            }
+            return copied;
+        }
+
+        BufferPool bufferPool = BufferPool.getDefault();
+        ByteBuffer buffer = bufferPool.acquireDirect(sliceSize);
+        try {
+            long copied = 0;
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                int n = buffer.remaining();
+                listener.onSlice(buffer.duplicate(), n);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                copied += n;
+                buffer.clear();
+            }
+            return copied;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Copies the range [startByte, endByte) from a positional source to the same position of a positional destination
+     */
+    public void copyRange(PositionalIncomingConnector source, PositionalOutgoingConnector target, long startByte,
+                          long endByte, SliceListener listener) throws Exception {
+
+        BufferPool bufferPool = BufferPool.getDefault();
+        ByteBuffer buffer = bufferPool.acquireDirect(sliceSize);
+        try {
+            long position = startByte;
+            while (position < endByte) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), endByte - position));
+                while (buffer.hasRemaining()) {
+                    if (source.read(buffer, position + buffer.position()) == -1) {
+                        throw new EOFException("Source ended at " + (position + buffer.position()) +
+                                " before the end of the range at " + endByte);
+                    }
+                }
+                buffer.flip();
+                int n = buffer.remaining();
+                listener.onSlice(buffer.duplicate(), n);
+                long writePosition = position;
+                while (buffer.hasRemaining()) {
+                    writePosition += target.write(buffer, writePosition);
+                }
+                position += n;
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    public interface SliceListener {
+
+        /**
+         * @param data the bytes of the slice, positioned at the first one. Null if the bytes did not pass through the
+         *             agent
+         * @param bytes size of the slice
+         */
+        void onSlice(ByteBuffer data, long bytes) throws Exception;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.api.UploadedChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Agent local, append only record of the chunks of a chunked transfer. Every dispatched chunk range and every
+ * completed chunk with its storage tag is appended as a line and forced to the disk, so the journal survives an
+ * agent crash. When the same transfer is dispatched again, the journal tells which ranges were already moved and
+ * which upload session to continue. A partially written last line is dropped on replay, so it is neither taken for a
+ * complete one nor continued by the lines appended after it.
+ *
+ * Line format
+ * <pre>
+ * H fileLength sourceFingerprint
+ * U uploadSessionId
+ * D chunkId startByte endByte
+ * C chunkId tag
+ * </pre>
+ */
+public class ChunkJournal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkJournal.class);
+
+    private static final String SUFFIX = ".journal";
+
+    private final Path path;
+    private FileChannel channel;
+
+    /*
+    Guards the journal while it is forced to the disk. A ReentrantLock so the blocking writes do not pin the carriers of
+    virtual threads
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private String uploadSessionId;
+    private final Map<Integer, long[]> dispatched = new HashMap<>();
+    private final BitSet completed = new BitSet();
+    private final Map<Integer, String> tags = new HashMap<>();
+
+    private ChunkJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens the journal of a transfer, replaying the existing one if it was written for the same source
+     *
+     * @param journalDir directory keeping the journals
+     * @param transferId id of the transfer
+     * @param fileLength size of the source file
+     * @param sourceFingerprint a value that changes when the source file changes. Eg: md5 or update time
+     * @return the opened journal
+     * @throws IOException if the journal can not be read or created
+     */
+    public static ChunkJournal open(String journalDir, String transferId, long fileLength, String sourceFingerprint)
+            throws IOException {
+
+        Path dir = new File(journalDir).toPath();
+        Files.createDirectories(dir);
+        ChunkJournal journal = new ChunkJournal(dir.resolve(transferId + SUFFIX));
+        String header = "H " + fileLength + " " + sourceFingerprint.replace(' ', '_');
+
+        if (Files.exists(journal.path)) {
+            List<String> lines = readCompleteLines(journal.path);
+            if (!lines.isEmpty() && lines.get(0).equals(header)) {
+                journal.replay(lines);
+            } else {
+                logger.info("Discarding journal of transfer {} as the source has changed", transferId);
+                Files.delete(journal.path);
+            }
+        }
+
+        journal.channel = FileChannel.open(journal.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (journal.channel.size() == 0) {
+            journal.append(header);
+        }
+        return journal;
+    }
+
+    /**
+     * Deletes journals which were not touched within the given time. Those belong to transfers that were never
+     * dispatched back to this agent
+     */
+    public static void purgeStale(String journalDir, long maxAgeMillis) {
+        File[] files = new File(journalDir).listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long threshold = System.currentTimeMillis() - maxAgeMillis;
+        for (File file : files) {
+            if (file.lastModified() < threshold && file.delete()) {
+                logger.info("Deleted stale chunk journal {}", file.getName());
+            }
+        }
+    }
+
+    /*
+    Reads the lines ending with a line break and truncates the torn last line a crash may have left behind
+     */
+    private static List<String> readCompleteLines(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+        if (end < bytes.length) {
+            logger.warn("Dropping the partially written last line of journal {}", path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+        return new String(bytes, 0, end, StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+    }
+
+    private void replay(List<String> lines) {
+        for (String line : lines.subList(1, lines.size())) {
+            String[] parts = line.split(" ");
+            try {
+                switch (parts[0]) {
+                    case "U":
+                        uploadSessionId = parts.length > 1 ? parts[1] : "";
+                        break;
+                    case "D":
+                        dispatched.put(Integer.parseInt(parts[1]),
+                                new long[]{Long.parseLong(parts[2]), Long.parseLong(parts[3])});
+                        break;
+                    case "C":
+                        int chunkId = Integer.parseInt(parts[1]);
+                        String tag = parts[2];
+                        completed.set(chunkId);
+                        tags.put(chunkId, tag);
+                        break;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Ignoring corrupted journal line {} in {}", line, path);
+            }
+        }
+    }
+
+    public String getUploadSessionId() {
+        lock.lock();
+        try {
+            return uploadSessionId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordUploadSession(String uploadSessionId) throws IOException {
+        lock.lock();
+        try {
+            this.uploadSessionId = uploadSessionId;
+            append("U " + uploadSessionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordDispatch(int chunkId, long startByte, long endByte) throws IOException {
+        lock.lock();
+        try {
+            if (!dispatched.containsKey(chunkId)) {
+                dispatched.put(chunkId, new long[]{startByte, endByte});
+                append("D " + chunkId + " " + startByte + " " + endByte);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordCompletion(int chunkId, String tag) throws IOException {
+        lock.lock();
+        try {
+            completed.set(chunkId);
+            tags.put(chunkId, tag);
+            append("C " + chunkId + " " + tag);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return chunks that were completed in earlier attempts, ordered by chunk id
+     */
+    public List<UploadedChunk> getUploadedChunks() {
+        lock.lock();
+        try {
+            List<UploadedChunk> chunks = new ArrayList<>();
+            for (int id = completed.nextSetBit(0); id >= 0; id = completed.nextSetBit(id + 1)) {
+                long[] range = dispatched.get(id);
+                if (range != null) {
+                    chunks.add(new UploadedChunk(id, range[0], range[1], tags.get(id)));
+                }
+            }
+            return chunks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return chunks that were dispatched in earlier attempts but never completed, ordered by chunk id
+     */
+    public List<UploadedChunk> getPendingChunks() {
+        lock.lock();
+        try {
+            List<UploadedChunk> chunks = new ArrayList<>();
+            new TreeMap<>(dispatched).forEach((id, range) -> {
+                if (!completed.get(id)) {
+                    chunks.add(new UploadedChunk(id, range[0], range[1], null));
+                }
+            });
+            return chunks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the offset and the chunk id the next new chunk should start from
+     */
+    public long[] getNextChunkPosition() {
+        lock.lock();
+        try {
+            long offset = 0;
+            int nextId = 0;
+            for (Map.Entry<Integer, long[]> entry : dispatched.entrySet()) {
+                offset = Math.max(offset, entry.getValue()[1]);
+                nextId = Math.max(nextId, entry.getKey() + 1);
+            }
+            return new long[]{offset, nextId};
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets all the recorded chunks. Used when the recorded upload session can not be resumed
+     */
+    public void reset() throws IOException {
+        lock.lock();
+        try {
+            uploadSessionId = null;
+            dispatched.clear();
+            completed.clear();
+            tags.clear();
+            String header = Files.readAllLines(path, StandardCharsets.UTF_8).get(0);
+            channel.truncate(0);
+            append(header);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes and removes the journal once the transfer is no longer resumable
+     */
+    public void delete() {
+        lock.lock();
+        try {
+            try {
+                close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete chunk journal {}", path, e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
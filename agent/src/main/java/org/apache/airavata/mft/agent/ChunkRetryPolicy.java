@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded retries with exponential backoff and full jitter for a single chunk
+ */
+public class ChunkRetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public ChunkRetryPolicy(int maxAttempts, long baseBackoffMillis, long maxBackoffMillis) {
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * @param attempt number of attempts already made, starting from 1
+     * @param error failure of the last attempt
+     * @return true if the chunk should be attempted again
+     */
+    public boolean shouldRetry(int attempt, Throwable error) {
+        return attempt < maxAttempts && !Thread.currentThread().isInterrupted()
+                && TransferErrorClassifier.isRetryable(error);
+    }
+
+    /**
+     * @param attempt number of attempts already made, starting from 1
+     * @return a random delay between 0 and the exponential backoff ceiling of the attempt
+     */
+    public long backoffMillis(int attempt) {
+        long ceiling = baseBackoffMillis << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > maxBackoffMillis) {
+            ceiling = maxBackoffMillis;
+        }
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * @param attempt number of attempts already made, starting from 1
+     * @param error failure of the last attempt
+     * @return the backoff of the attempt, extended to the delay a throttling storage asked for
+     */
+    public long backoffMillis(int attempt, Throwable error) {
+        return Math.max(backoffMillis(attempt), TransferErrorClassifier.retryAfterMillis(error));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
+
+/**
+ * Decides the size of each chunk of a single transfer. The configured chunk size is the starting point and it is
+ * raised when needed so that the file fits into the part count limit of the destination. When adaptive sizing is
+ * enabled, the size of the next chunk follows the per chunk throughput measured on the completed chunks so that each
+ * chunk takes roughly the target duration. Sizes always stay inside the part size limits of the destination and a
+ * trailing chunk smaller than the minimum part size is never produced.
+ */
+public class ChunkSizer {
+
+    private static final double THROUGHPUT_SMOOTHING = 0.3;
+
+    private final long fileLength;
+    private final long baseChunkSize;
+    private final long maxChunkSize;
+    private final long targetChunkMillis;
+    private final ConnectorCapabilities limits;
+
+    /*
+    Smoothed throughput of a single chunk in bytes per millisecond. Negative until the first chunk is completed
+     */
+    private double bytesPerMilli = -1;
+    private long lastChunkSize;
+
+    /**
+     * @param fileLength total size of the transferring file
+     * @param baseChunkSize chunk size to use until throughput measurements are available
+     * @param maxChunkSize upper bound for adaptively grown chunks
+     * @param targetChunkMillis preferred duration of a chunk. Adaptive sizing is disabled if this is not positive
+     * @param limits capabilities of the destination holding its part limits
+     * @throws IllegalArgumentException if the file can not be split within the limits of the destination
+     */
+    public ChunkSizer(long fileLength, long baseChunkSize, long maxChunkSize, long targetChunkMillis,
+                      ConnectorCapabilities limits) {
+        if (limits.getMaxPartCount() < Long.MAX_VALUE / limits.getMaxPartSize() &&
+                fileLength > limits.getMaxPartSize() * limits.getMaxPartCount()) {
+            throw new IllegalArgumentException("File of " + fileLength + " bytes can not be uploaded in " +
+                    limits.getMaxPartCount() + " parts of at most " + limits.getMaxPartSize() + " bytes");
+        }
+        this.fileLength = fileLength;
+        this.baseChunkSize = baseChunkSize;
+        this.maxChunkSize = Math.max(maxChunkSize, baseChunkSize);
+        this.targetChunkMillis = targetChunkMillis;
+        this.limits = limits;
+        this.lastChunkSize = baseChunkSize;
+    }
+
+    /**
+     * Records the time taken to move a completed chunk
+     *
+     * @param bytes size of the chunk
+     * @param millis time taken to move the chunk
+     */
+    public synchronized void recordChunk(long bytes, long millis) {
+        double sample = bytes * 1.0 / Math.max(millis, 1);
+        bytesPerMilli = bytesPerMilli < 0 ? sample : bytesPerMilli + THROUGHPUT_SMOOTHING * (sample - bytesPerMilli);
+    }
+
+    /**
+     * Size of the chunk starting at the given offset
+     *
+     * @param offset start position of the chunk
+     * @param chunkIdx index of the chunk
+     * @return number of bytes the chunk should carry
+     */
+    public synchronized long nextChunkSize(long offset, int chunkIdx) {
+        long remaining = fileLength - offset;
+        long remainingParts = (long) limits.getMaxPartCount() - chunkIdx;
+        if (remainingParts <= 1) {
+            return remaining;
+        }
+
+        long size = preferredChunkSize();
+        size = Math.max(size, (remaining + remainingParts - 1) / remainingParts);
+        size = Math.max(size, limits.getMinPartSize());
+        size = Math.min(size, limits.getMaxPartSize());
+
+        if (size >= remaining) {
+            return remaining;
+        }
+
+        long tail = remaining - size;
+        if (tail < limits.getMinPartSize()) {
+            size = remaining <= limits.getMaxPartSize() ? remaining : remaining - limits.getMinPartSize();
+        }
+
+        lastChunkSize = size;
+        return size;
+    }
+
+    /**
+     * @return upper bound of the sizes returned by {@link #nextChunkSize(long, int)}
+     */
+    public long getMaxChunkSize() {
+        long size = Math.max(maxChunkSize, (fileLength + limits.getMaxPartCount() - 1) / limits.getMaxPartCount());
+        size = Math.max(size, limits.getMinPartSize());
+        // A short tail may be merged into the chunk before it
+        size = Math.min(size + limits.getMinPartSize(), limits.getMaxPartSize());
+        return Math.max(Math.min(size, fileLength), 1);
+    }
+
+    private long preferredChunkSize() {
+        if (targetChunkMillis <= 0 || bytesPerMilli < 0) {
+            return baseChunkSize;
+        }
+        long size = (long) (bytesPerMilli * targetChunkMillis);
+
+        // Resize gradually to avoid swinging on a single slow or fast chunk
+        size = Math.max(size, lastChunkSize / 2);
+        size = Math.min(size, lastChunkSize * 2);
+        return Math.max(Math.min(size, maxChunkSize), 1);
+    }
+}
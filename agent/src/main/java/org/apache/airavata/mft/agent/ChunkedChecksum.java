@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.admin.models.TransferState;
+import org.apache.airavata.mft.core.api.ChecksumReportingConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Whole object checksum of a chunked transfer combined from the checksums of its chunks, which are computed while the
+ * chunks are moved in any order. The chunk checksums are combined in the way the destination computes the checksum of
+ * an object uploaded in parts, so the result can be compared with the value the destination reports.
+ */
+public class ChunkedChecksum implements TransferChecksum {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedChecksum.class);
+
+    // Reversed Castagnoli polynomial used by CRC32C
+    private static final int CRC32C_POLYNOMIAL = 0x82F63B78;
+
+    private final String algorithm;
+    private final long fileLength;
+    private final Map<Integer, ChunkDigest> digests = new ConcurrentHashMap<>();
+
+    private String combined;
+    private String status = UNVERIFIED;
+
+    /**
+     * @param algorithm one of the algorithms of {@link ChecksumReportingConnector}
+     * @param fileLength total size of the transferring file
+     */
+    public ChunkedChecksum(String algorithm, long fileLength) {
+        this.algorithm = algorithm;
+        this.fileLength = fileLength;
+    }
+
+    /**
+     * @return a digest for a single attempt of moving a chunk
+     */
+    public ChunkDigest newDigest() {
+        return new ChunkDigest(!ChecksumReportingConnector.CRC32C.equals(algorithm));
+    }
+
+    /**
+     * Records the digest of a chunk once the chunk is moved
+     */
+    public void record(int chunkIdx, ChunkDigest digest) {
+        digests.put(chunkIdx, digest);
+    }
+
+    /**
+     * Combines the chunk checksums and compares the result with the checksum reported by the destination. Should be
+     * called once all the chunks are moved
+     *
+     * @param reported checksum reported by the destination
+     * @throws IOException if the checksums do not match
+     */
+    public void verify(Optional<String> reported) throws IOException {
+        combined = combine();
+        if (combined == null || reported.isEmpty()) {
+            return;
+        }
+        String expected = reported.get().replace("\"", "").trim().toLowerCase();
+        if (!expected.equals(combined)) {
+            status = MISMATCH;
+            throw new IOException("Checksum " + combined + " combined from the transferred chunks does not match the " +
+                    algorithm + " " + expected + " reported by the destination");
+        }
+        status = VERIFIED;
+    }
+
+    @Override
+    public TransferState applyTo(TransferState state) {
+        return state.setChecksumAlgorithm(algorithm).setChecksum(combined).setChecksumStatus(status);
+    }
+
+    /*
+    Returns null if some chunks were not moved in this attempt of the transfer, such as chunks resumed from the journal
+     */
+    private String combine() {
+        long covered = 0;
+        for (int idx = 0; idx < digests.size(); idx++) {
+            ChunkDigest digest = digests.get(idx);
+            if (digest == null) {
+                break;
+            }
+            covered += digest.length;
+        }
+        if (covered != fileLength) {
+            logger.info("Chunks of {} bytes out of {} were checksummed. Skipping the checksum verification",
+                    covered, fileLength);
+            return null;
+        }
+
+        int chunkCount = digests.size();
+        switch (algorithm) {
+            case ChecksumReportingConnector.MULTIPART_ETAG: {
+                MessageDigest md5 = Digests.newMd5();
+                for (int idx = 0; idx < chunkCount; idx++) {
+                    md5.update(digests.get(idx).md5Bytes());
+                }
+                return Digests.toHex(md5.digest()) + "-" + chunkCount;
+            }
+            case ChecksumReportingConnector.MD5_OF_SEGMENT_MD5S: {
+                MessageDigest md5 = Digests.newMd5();
+                for (int idx = 0; idx < chunkCount; idx++) {
+                    md5.update(Digests.toHex(digests.get(idx).md5Bytes()).getBytes());
+                }
+                return Digests.toHex(md5.digest());
+            }
+            default: {
+                long crc = 0;
+                for (int idx = 0; idx < chunkCount; idx++) {
+                    ChunkDigest digest = digests.get(idx);
+                    crc = idx == 0 ? digest.crc32c.getValue() :
+                            combineCrc32c(crc, digest.crc32c.getValue(), digest.length);
+                }
+                return String.format("%08x", crc);
+            }
+        }
+    }
+
+    /**
+     * CRC32C of the concatenation of two byte sequences computed from their CRC32Cs, as done by crc32_combine of zlib
+     *
+     * @param crc1 CRC32C of the first sequence
+     * @param crc2 CRC32C of the second sequence
+     * @param length2 length of the second sequence
+     * @return CRC32C of the concatenation
+     */
+    static long combineCrc32c(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+
+        // Operator advancing the CRC over a single zero bit, then squared to advance over two and four bits
+        int[] odd = new int[32];
+        int[] even = new int[32];
+        odd[0] = CRC32C_POLYNOMIAL;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // Applies the operators of the bits of length2 bytes of zeros to crc1
+        int crc = (int) crc1;
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc = gf2MatrixTimes(even, crc);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc = gf2MatrixTimes(odd, crc);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return (crc ^ (int) crc2) & 0xffffffffL;
+    }
+
+    private static int gf2MatrixTimes(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * Checksum of the bytes of a single chunk
+     */
+    public static class ChunkDigest {
+
+        private final MessageDigest md5;
+        private final CRC32C crc32c = new CRC32C();
+        private byte[] md5Bytes;
+        private long length = 0;
+
+        private ChunkDigest(boolean useMd5) {
+            this.md5 = useMd5 ? Digests.newMd5() : null;
+        }
+
+        /**
+         * @return a stream adding the bytes read to the checksum of the chunk
+         */
+        public InputStream wrap(InputStream inputStream) {
+            return new FilterInputStream(inputStream) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        update(new byte[]{(byte) b}, 0, 1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        update(b, off, n);
+                    }
+                    return n;
+                }
+            };
+        }
+
+        /**
+         * Adds the remaining bytes of the buffer to the checksum of the chunk without consuming them
+         */
+        public void update(ByteBuffer data) {
+            int len = data.remaining();
+            if (md5 != null) {
+                md5.update(data.duplicate());
+            } else {
+                crc32c.update(data.duplicate());
+            }
+            length += len;
+        }
+
+        private void update(byte[] b, int off, int len) {
+            if (md5 != null) {
+                md5.update(b, off, len);
+            } else {
+                crc32c.update(b, off, len);
+            }
+            length += len;
+        }
+
+        private byte[] md5Bytes() {
+            if (md5Bytes == null) {
+                md5Bytes = md5.digest();
+            }
+            return md5Bytes;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.EndpointThrottledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests of all the transfers of the agent to a single storage endpoint. A request waits until the
+ * endpoint has a free concurrency slot and the request rate allows it. When the endpoint throttles a request, new
+ * requests are held back for the delay the endpoint asked for, or a default pause, so the other requests in flight are
+ * not throttled as well.
+ */
+public class EndpointLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndpointLimiter.class);
+
+    private final String endpoint;
+    private final AimdConcurrencyController concurrency;
+    private final TokenBucket requestRate;
+    private final long throttlePauseMillis;
+
+    private final Object pauseLock = new Object();
+    private long pausedUntilNanos = System.nanoTime();
+
+    /**
+     * @param endpoint key of the endpoint
+     * @param concurrency controller of the number of requests in flight
+     * @param requestsPerSecond maximum request rate. 0 means unlimited
+     * @param throttlePauseMillis time requests are held back after a throttled request if the endpoint did not ask for
+     *                            a delay
+     */
+    public EndpointLimiter(String endpoint, AimdConcurrencyController concurrency, long requestsPerSecond,
+                           long throttlePauseMillis) {
+        this.endpoint = endpoint;
+        this.concurrency = concurrency;
+        this.requestRate = new TokenBucket(requestsPerSecond);
+        this.throttlePauseMillis = throttlePauseMillis;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Waits until a request can be sent to the endpoint. Must be followed by {@link #release(long, long, Throwable)}
+     */
+    public void acquire() throws InterruptedException {
+        awaitPause();
+        concurrency.acquire();
+        try {
+            requestRate.acquire(1);
+        } catch (InterruptedException e) {
+            concurrency.release(0, 0, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until a stream holding a request for a whole transfer can be started. Must be followed by
+     * {@link #releaseStream(Throwable)}
+     */
+    public void acquireStream() throws InterruptedException {
+        awaitPause();
+        concurrency.acquireStream();
+        try {
+            requestRate.acquire(1);
+        } catch (InterruptedException e) {
+            concurrency.releaseStream(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the slot of a stream
+     *
+     * @param error failure of the stream or null if it succeeded
+     */
+    public void releaseStream(Throwable error) {
+        concurrency.releaseStream(throttled(error));
+    }
+
+    /**
+     * Releases the request slot and records how the request went
+     *
+     * @param bytes bytes moved by the request. 0 if it failed
+     * @param nanos time taken by the request
+     * @param error failure of the request or null if it succeeded
+     */
+    public void release(long bytes, long nanos, Throwable error) {
+        concurrency.release(bytes, nanos, throttled(error));
+    }
+
+    /*
+    Holds back new requests if the endpoint throttled the request
+     */
+    private boolean throttled(Throwable error) {
+        boolean throttled = error != null && TransferErrorClassifier.isThrottled(error);
+        if (throttled) {
+            long retryAfter = TransferErrorClassifier.retryAfterMillis(error);
+            pause(retryAfter > 0 ? retryAfter : throttlePauseMillis);
+        }
+        return throttled;
+    }
+
+    /**
+     * @param maxConcurrency maximum number of requests in flight
+     * @param requestsPerSecond maximum request rate. 0 means unlimited
+     */
+    public void setLimits(int maxConcurrency, long requestsPerSecond) {
+        logger.info("Setting the limits of endpoint {} to {} concurrent requests and {} requests/s", endpoint,
+                maxConcurrency, requestsPerSecond);
+        concurrency.setMaxLimit(maxConcurrency);
+        requestRate.setRate(requestsPerSecond);
+    }
+
+    private void pause(long millis) {
+        synchronized (pauseLock) {
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            if (until - pausedUntilNanos > 0) {
+                logger.info("Endpoint {} throttled a request. Holding back new requests for {} ms", endpoint, millis);
+                pausedUntilNanos = until;
+            }
+        }
+    }
+
+    private void awaitPause() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (pauseLock) {
+                waitNanos = pausedUntilNanos - System.nanoTime();
+            }
+            if (waitNanos <= 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Limiters of the storage endpoints shared by all the transfers of the agent, keyed by the storage key of
+ * {@link BandwidthShaper#storageKey(String, String)}. Endpoints without explicit limits get the default ones. Limits
+ * can be changed while transfers are running.
+ */
+public class EndpointLimiterRegistry {
+
+    private final Map<String, EndpointLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final int defaultMaxConcurrency;
+    private final long defaultRequestRate;
+    private final boolean adaptiveConcurrency;
+    private final int initialConcurrency;
+    private final long throttlePauseMillis;
+
+    /*
+    Number of chunks the agent moves at a time. Bounds the tuned concurrency of the endpoints without a maximum
+     */
+    private volatile int chunkWorkers = Integer.MAX_VALUE;
+
+    /**
+     * @param defaultMaxConcurrency maximum number of requests in flight to an endpoint. 0 means unlimited, or the
+     *                              number of chunk workers if the concurrency is tuned
+     * @param defaultRequestRate maximum requests per second to an endpoint. 0 means unlimited
+     * @param adaptiveConcurrency whether the concurrency of each endpoint is tuned from the request timings
+     * @param initialConcurrency concurrency a tuned endpoint starts from
+     * @param throttlePauseMillis time requests to an endpoint are held back after it throttled a request
+     */
+    public EndpointLimiterRegistry(int defaultMaxConcurrency, long defaultRequestRate, boolean adaptiveConcurrency,
+                                   int initialConcurrency, long throttlePauseMillis) {
+        this.defaultMaxConcurrency = defaultMaxConcurrency;
+        this.defaultRequestRate = defaultRequestRate;
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        this.initialConcurrency = initialConcurrency;
+        this.throttlePauseMillis = throttlePauseMillis;
+    }
+
+    /**
+     * Sets the number of chunks the agent moves at a time. A tuned limit above it would not add any concurrency and a
+     * later decrease of such a limit would not reduce it either, so the limit of endpoints without a maximum is capped
+     * by it. Should be set before the first transfer
+     */
+    public void setChunkWorkers(int chunkWorkers) {
+        this.chunkWorkers = Math.max(chunkWorkers, 1);
+    }
+
+    public EndpointLimiter forEndpoint(String endpoint) {
+        return limiters.computeIfAbsent(endpoint, key -> new EndpointLimiter(key,
+                new AimdConcurrencyController(key, adaptiveConcurrency, initialConcurrency,
+                        maxConcurrency(defaultMaxConcurrency)),
+                defaultRequestRate, throttlePauseMillis));
+    }
+
+    /**
+     * Limiters of the endpoints a transfer moves data between, sorted by the endpoint key so that transfers in opposite
+     * directions between the same endpoints acquire them in the same order
+     */
+    public List<EndpointLimiter> forEndpoints(String... endpoints) {
+        return new TreeSet<>(List.of(endpoints)).stream().map(this::forEndpoint).collect(Collectors.toList());
+    }
+
+    /**
+     * @param maxConcurrency maximum number of requests in flight. 0 means unlimited
+     * @param requestsPerSecond maximum request rate. 0 means unlimited
+     */
+    public void setEndpointLimits(String endpoint, int maxConcurrency, long requestsPerSecond) {
+        forEndpoint(endpoint).setLimits(maxConcurrency(maxConcurrency), requestsPerSecond);
+    }
+
+    /*
+    Unlimited concurrency is only unlimited when it is not tuned. A tuned limit stays within the chunk workers
+     */
+    private int maxConcurrency(int maxConcurrency) {
+        if (maxConcurrency > 0) {
+            return maxConcurrency;
+        }
+        return adaptiveConcurrency ? chunkWorkers : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of chunk worker threads shared by all the transfers of the agent. Each transfer gets its own task queue
+ * and workers pick the next chunk from the queue that has consumed the least worker time relative to its weight
+ * (weighted fair queuing on virtual time). A transfer that has just started is placed at the virtual time of the
+ * transfers already running, so a small transfer does not wait behind the backlog of a large one, while the large
+ * transfer still gets every worker that no other transfer needs.
+ */
+public class FairShareChunkExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FairShareChunkExecutor.class);
+
+    private static final double TASK_TIME_SMOOTHING = 0.3;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<String, TransferQueue> queues = new LinkedHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    private int idleWorkers = 0;
+    private boolean shutdown = false;
+
+    public FairShareChunkExecutor(int workerCount) {
+        this(workerCount, platformThreadFactory());
+    }
+
+    /**
+     * @param workerCount number of workers. This is the maximum number of chunks running at a time across all transfers
+     * @param threadFactory factory of the worker threads. Eg: a virtual thread factory
+     */
+    public FairShareChunkExecutor(int workerCount, ThreadFactory threadFactory) {
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threadFactory.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * @return a factory of daemon platform worker threads named chunk-worker-n
+     */
+    public static ThreadFactory platformThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread worker = new Thread(r, "chunk-worker-" + count.getAndIncrement());
+            worker.setDaemon(true);
+            return worker;
+        };
+    }
+
+    /**
+     * Registers a transfer and returns the executor its chunks should be submitted to
+     *
+     * @param transferId id of the transfer
+     * @param weight share of the workers the transfer is entitled to relative to others. Values below 1 are treated as 1
+     * @return an {@link Executor} queueing tasks for the transfer
+     */
+    public Executor forTransfer(String transferId, int weight) {
+        lock.lock();
+        try {
+            TransferQueue queue = new TransferQueue(transferId, Math.max(weight, 1));
+            queues.put(transferId, queue);
+            return queue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the queue of a transfer. Tasks still queued for the transfer are discarded
+     *
+     * @param transferId id of the transfer
+     */
+    public void release(String transferId) {
+        lock.lock();
+        try {
+            TransferQueue queue = queues.remove(transferId);
+            if (queue != null && !queue.tasks.isEmpty()) {
+                logger.warn("Discarding {} queued chunks of transfer {}", queue.tasks.size(), transferId);
+                queue.tasks.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleWorkers() {
+        lock.lock();
+        try {
+            return idleWorkers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            TransferQueue queue;
+            Runnable task;
+            long estimate;
+
+            lock.lock();
+            try {
+                while ((queue = pickNext()) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    idleWorkers++;
+                    try {
+                        workAvailable.await(1, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        // Ignore and re-check the state
+                    } finally {
+                        idleWorkers--;
+                    }
+                }
+                task = queue.tasks.poll();
+                queue.running++;
+                estimate = queue.averageTaskNanos;
+                queue.virtualTime += estimate * 1.0 / queue.weight;
+            } finally {
+                lock.unlock();
+            }
+
+            // A cancel(true) of the previous task can interrupt the worker after that task returned
+            Thread.interrupted();
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("Chunk task of transfer {} failed unexpectedly", queue.transferId, e);
+            } finally {
+                // Cleared so the interrupt of a cancelled task does not abort the next task, possibly of another transfer
+                Thread.interrupted();
+                long elapsed = System.nanoTime() - start;
+                lock.lock();
+                try {
+                    queue.running--;
+                    queue.virtualTime += (elapsed - estimate) * 1.0 / queue.weight;
+                    queue.averageTaskNanos = queue.averageTaskNanos == 0 ? elapsed :
+                            (long) (queue.averageTaskNanos + TASK_TIME_SMOOTHING * (elapsed - queue.averageTaskNanos));
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /*
+    Must be called while holding the lock
+     */
+    private TransferQueue pickNext() {
+        TransferQueue selected = null;
+        for (TransferQueue queue : queues.values()) {
+            if (!queue.tasks.isEmpty() && (selected == null || queue.virtualTime < selected.virtualTime)) {
+                selected = queue;
+            }
+        }
+        return selected;
+    }
+
+    /*
+    Lowest virtual time among the transfers that currently hold or wait for workers. Must be called while holding the lock
+     */
+    private double activeVirtualTime(TransferQueue excluded) {
+        double min = -1;
+        for (TransferQueue queue : queues.values()) {
+            if (queue != excluded && (!queue.tasks.isEmpty() || queue.running > 0) &&
+                    (min < 0 || queue.virtualTime < min)) {
+                min = queue.virtualTime;
+            }
+        }
+        return min;
+    }
+
+    private class TransferQueue implements Executor {
+
+        private final String transferId;
+        private final int weight;
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        private double virtualTime = 0;
+        private long averageTaskNanos = 0;
+        private int running = 0;
+
+        private TransferQueue(String transferId, int weight) {
+            this.transferId = transferId;
+            this.weight = weight;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            lock.lock();
+            try {
+                if (shutdown || queues.get(transferId) != this) {
+                    throw new RejectedExecutionException("Chunk queue of transfer " + transferId + " is closed");
+                }
+
+                if (tasks.isEmpty() && running == 0) {
+                    // Do not let an idle transfer bank the time it was not using
+                    virtualTime = Math.max(virtualTime, activeVirtualTime(this));
+                }
+                tasks.add(task);
+                workAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
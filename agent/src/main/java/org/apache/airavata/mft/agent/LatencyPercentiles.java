@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles of the most recent latency samples. Only a fixed number of samples is kept so the percentiles follow
+ * changes of the network conditions during a long transfer.
+ */
+public class LatencyPercentiles {
+
+    private final long[] samples;
+    private int next = 0;
+    private int count = 0;
+
+    /**
+     * @param capacity number of most recent samples kept
+     */
+    public LatencyPercentiles(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100. Eg: 50 for the median
+     * @return the latency in nanoseconds at the given percentile or -1 if there are no samples
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(idx, count - 1))];
+    }
+}
@@ -35,6 +35,8 @@ import org.apache.airavata.mft.agent.http.HttpTransferRequestsStore;
 import org.apache.airavata.mft.agent.rpc.RPCParser;
 import org.apache.airavata.mft.api.service.CallbackEndpoint;
 import org.apache.airavata.mft.api.service.TransferApiRequest;
+import org.apache.airavata.mft.core.BufferPool;
+import org.apache.airavata.mft.core.ConnectorRegistry;
 import org.apache.airavata.mft.core.FileResourceMetadata;
 import org.apache.airavata.mft.core.MetadataCollectorResolver;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
@@ -52,6 +54,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -108,6 +111,106 @@ public class MFTAgent implements CommandLineRunner {
     @org.springframework.beans.factory.annotation.Value("${agent.chunk.streaming.enabled}")
     private boolean doChunkStream;
 
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.window.size:40}")
+    private int chunkWindowSize;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.max.size:512}")
+    private int maxChunkedSize;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.target.duration.seconds:0}")
+    private int chunkTargetSeconds;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.retry.attempts:3}")
+    private int chunkRetryAttempts;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.retry.backoff.ms:500}")
+    private long chunkRetryBackoffMillis;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.retry.max.backoff.ms:30000}")
+    private long chunkRetryMaxBackoffMillis;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.split.buffered.parts:8}")
+    private int splitBufferedParts;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.readahead.size:256}")
+    private int readAheadSize;
+
+    /*
+    Total size in MB of the chunk staging files and the memory backed directory preferred for them. Staging and spilled
+    chunks stay on the disk unless a directory like /dev/shm is set, as a memory backed directory takes from the RAM
+     */
+    @org.springframework.beans.factory.annotation.Value("${agent.staging.budget.size:10240}")
+    private int stagingBudgetSize;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.staging.tmpfs.dir:}")
+    private String stagingTmpfsDir;
+
+    /*
+    Size in MB of the chunk data streamed through the heap at a time. Chunks over the budget are staged. 0 disables
+    the budget
+     */
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.memory.budget.size:1024}")
+    private int chunkMemoryBudgetSize;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.checksum.enabled:false}")
+    private boolean checksumEnabled;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.speculation.multiplier:0}")
+    private double speculationMultiplier;
+
+    /*
+    Moves the chunks on the non blocking path when both connectors of a transfer support it. That path does not apply
+    the endpoint limiters, fair share weights, speculation or staging
+     */
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.async.enabled:false}")
+    private boolean asyncChunkEnabled;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.async.event.loop.threads:2}")
+    private int asyncEventLoopThreads;
+
+    /*
+    Maximum number of chunks of a transfer in flight when both connectors of the transfer are non blocking
+     */
+    @org.springframework.beans.factory.annotation.Value("${agent.chunk.async.window.size:256}")
+    private int asyncChunkWindowSize;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.progress.interval.ms:2000}")
+    private long progressIntervalMillis;
+
+    /*
+    Runs transfers, chunk workers and RPC requests on virtual threads when the JDK supports them (21 and later)
+     */
+    @org.springframework.beans.factory.annotation.Value("${agent.virtual.threads.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /*
+    Maximum number of chunks moved at a time across all transfers when virtual threads are enabled
+     */
+    @org.springframework.beans.factory.annotation.Value("${agent.virtual.chunk.concurrency:1000}")
+    private int virtualChunkConcurrency;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.virtual.rpc.concurrency:64}")
+    private int virtualRpcConcurrency;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.buffer.copy.size:131072}")
+    private int copyBufferSize;
+
+    /*
+    Comma separated copy buffer sizes of individual storage types. Eg: LOCAL=1048576,FTP=262144
+     */
+    @org.springframework.beans.factory.annotation.Value("${agent.buffer.copy.sizes:}")
+    private String copyBufferSizes;
+
+    @org.springframework.beans.factory.annotation.Value("${agent.buffer.pool.max.size:256}")
+    private int bufferPoolMaxSize;
+
+    /*
+    Comma separated storage types whose connectors are loaded at the startup. Other types are loaded by their first
+    transfer. Eg: S3,LOCAL
+     */
+    @org.springframework.beans.factory.annotation.Value("${agent.connector.preload.types:}")
+    private String preloadConnectorTypes;
+
     private final Semaphore mainHold = new Semaphore(0);
 
     private KVCache transferMessageCache;
@@ -122,6 +225,12 @@ public class MFTAgent implements CommandLineRunner {
     private String session;
     private ExecutorService transferRequestExecutor;
 
+    /*
+    Runs RPC requests. Requests are processed on the consul listener thread unless virtual threads are enabled
+     */
+    private Executor rpcExecutor = Runnable::run;
+    private final Set<String> rpcRequestsInProgress = ConcurrentHashMap.newKeySet();
+
 
     private TransportMediator mediator;
 
@@ -137,17 +246,83 @@ public class MFTAgent implements CommandLineRunner {
     @Autowired
     private HttpTransferRequestsStore transferRequestsStore;
 
+    @Autowired
+    private BandwidthShaper bandwidthShaper;
+
+    @Autowired
+    private EndpointLimiterRegistry endpointLimiterRegistry;
+
     private final AtomicLong totalRunningTransfers = new AtomicLong(0);
     private final AtomicLong totalPendingTransfers = new AtomicLong(0);
 
+    private void configureBufferPool() {
+        BufferPool bufferPool = BufferPool.getDefault();
+        bufferPool.setMaxPooledBytes(bufferPoolMaxSize * 1024 * 1024L);
+        bufferPool.setDefaultCopySize(copyBufferSize);
+        for (String entry : copyBufferSizes.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length == 2) {
+                bufferPool.setCopySize(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+        }
+    }
+
+    private void preloadConnectors() {
+        ConnectorRegistry registry = ConnectorRegistry.getDefault();
+        logger.info("Found connectors for storage types {}", registry.getStorageTypes());
+        List<String> types = new ArrayList<>();
+        for (String type : preloadConnectorTypes.split(",")) {
+            if (!type.trim().isEmpty()) {
+                types.add(type.trim());
+            }
+        }
+        List<String> missing = registry.preload(types);
+        if (!missing.isEmpty()) {
+            logger.warn("No connectors are available for the configured storage types {}", missing);
+        }
+    }
+
     public void init() {
+        configureBufferPool();
+        preloadConnectors();
         transferMessageCache = KVCache.newCache(mftConsulClient.getKvClient(), MFTConsulClient.AGENTS_TRANSFER_REQUEST_MESSAGE_PATH + agentId);
         rpcMessageCache = KVCache.newCache(mftConsulClient.getKvClient(), MFTConsulClient.AGENTS_RPC_REQUEST_MESSAGE_PATH + agentId);
+
+        Optional<ThreadFactory> virtualThreadFactory = Optional.empty();
+        if (virtualThreadsEnabled) {
+            virtualThreadFactory = VirtualThreads.factory("mft-virtual-");
+            if (virtualThreadFactory.isEmpty()) {
+                logger.warn("Virtual threads are not supported by the JDK {}. Using platform threads",
+                        System.getProperty("java.version"));
+            }
+        }
+
+        int chunkConcurrency;
+        ThreadFactory chunkThreadFactory;
+        if (virtualThreadFactory.isPresent()) {
+            logger.info("Running transfers, chunks and RPC requests on virtual threads");
+            ThreadFactory factory = virtualThreadFactory.get();
+            chunkConcurrency = virtualChunkConcurrency;
+            chunkThreadFactory = factory;
+            transferRequestExecutor = VirtualThreads.newBoundedExecutor(factory, concurrentTransfers);
+            rpcExecutor = VirtualThreads.newBoundedExecutor(factory, virtualRpcConcurrency);
+        } else {
+            chunkConcurrency = concurrentChunkedThreads;
+            chunkThreadFactory = FairShareChunkExecutor.platformThreadFactory();
+            transferRequestExecutor = Executors.newFixedThreadPool(concurrentTransfers);
+        }
+
+        endpointLimiterRegistry.setChunkWorkers(chunkConcurrency);
         mediator = new TransportMediator(tempDataDir,
-                concurrentTransfers,
-                concurrentChunkedThreads,
-                chunkedSize, doChunkStream);
-        transferRequestExecutor = Executors.newFixedThreadPool(concurrentTransfers);
+                progressIntervalMillis,
+                chunkConcurrency, chunkThreadFactory,
+                chunkedSize, doChunkStream, chunkWindowSize,
+                maxChunkedSize, chunkTargetSeconds,
+                new ChunkRetryPolicy(chunkRetryAttempts, chunkRetryBackoffMillis, chunkRetryMaxBackoffMillis),
+                splitBufferedParts, readAheadSize, bandwidthShaper, stagingTmpfsDir, stagingBudgetSize,
+                chunkMemoryBudgetSize,
+                checksumEnabled, speculationMultiplier,
+                endpointLimiterRegistry, asyncChunkEnabled, asyncEventLoopThreads, asyncChunkWindowSize);
     }
 
     private void acceptRPCRequests() {
@@ -155,14 +330,21 @@ public class MFTAgent implements CommandLineRunner {
             newValues.values().forEach(value -> {
                 Optional<String> decodedValue = value.getValueAsString();
                 decodedValue.ifPresent(v -> {
-                    try {
-                        SyncRPCRequest rpcRequest = mapper.readValue(v, SyncRPCRequest.class);
-                        mftConsulClient.sendSyncRPCResponseFromAgent(rpcRequest.getReturnAddress(), rpcParser.processRPCRequest(rpcRequest));
-                    } catch (Throwable e) {
-                        logger.error("Error processing the RPC request {}", value.getKey(), e);
-                    } finally {
-                        mftConsulClient.getKvClient().deleteKey(value.getKey());
+                    // The cache can notify the same request again until its key is deleted
+                    if (!rpcRequestsInProgress.add(value.getKey())) {
+                        return;
                     }
+                    rpcExecutor.execute(() -> {
+                        try {
+                            SyncRPCRequest rpcRequest = mapper.readValue(v, SyncRPCRequest.class);
+                            mftConsulClient.sendSyncRPCResponseFromAgent(rpcRequest.getReturnAddress(), rpcParser.processRPCRequest(rpcRequest));
+                        } catch (Throwable e) {
+                            logger.error("Error processing the RPC request {}", value.getKey(), e);
+                        } finally {
+                            mftConsulClient.getKvClient().deleteKey(value.getKey());
+                            rpcRequestsInProgress.remove(value.getKey());
+                        }
+                    });
                 });
             });
         };
@@ -400,6 +582,9 @@ public class MFTAgent implements CommandLineRunner {
         disconnectAgent();
         mainHold.release();
         transferRequestExecutor.shutdown();
+        if (rpcExecutor instanceof ExecutorService) {
+            ((ExecutorService) rpcExecutor).shutdown();
+        }
     }
 
     public void start() throws Exception {
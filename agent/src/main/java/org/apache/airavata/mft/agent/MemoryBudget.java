@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Agent wide budget of heap memory for chunk data in flight. Reservations of single chunks never wait. A caller that
+ * can not reserve its bytes is expected to fall back to a path that does not hold the data in memory. Transfers that
+ * can only buffer in memory reserve their buffers in units instead, waiting until at least one unit fits.
+ */
+public class MemoryBudget {
+
+    private final long budgetBytes;
+    private final AtomicLong reservedBytes = new AtomicLong(0);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    public MemoryBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return true if the bytes were reserved. They should be released with {@link #release(long)}
+     */
+    public boolean tryReserve(long bytes) {
+        long current;
+        do {
+            current = reservedBytes.get();
+            if (current + bytes > budgetBytes) {
+                return false;
+            }
+        } while (!reservedBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    /**
+     * Waits until at least one unit fits into the budget and reserves as many units as fit, up to the given maximum. A
+     * unit larger than the whole budget is reserved once nothing else is reserved
+     *
+     * @return number of units reserved. Their bytes should be released with {@link #release(long)}
+     */
+    public int reserveUnits(int maxUnits, long unitBytes) throws InterruptedException {
+        while (true) {
+            long current = reservedBytes.get();
+            int units = (int) Math.min(maxUnits, (budgetBytes - current) / unitBytes);
+            if (units < 1 && current == 0) {
+                units = 1;
+            }
+            if (units >= 1) {
+                if (reservedBytes.compareAndSet(current, current + units * unitBytes)) {
+                    return units;
+                }
+                continue;
+            }
+            lock.lock();
+            try {
+                released.await(1, TimeUnit.SECONDS);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void release(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+        lock.lock();
+        try {
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+}
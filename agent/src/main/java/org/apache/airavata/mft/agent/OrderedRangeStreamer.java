@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.airavata.mft.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Fetches the ranges of a file concurrently and writes them to a single output stream in their original order. Ranges
+ * are fetched ahead of the one being written as long as the total size of the fetched but not yet written ranges
+ * stays within the read ahead limit. The range being written is always allowed, even if it alone exceeds the limit.
+ *
+ * A failed fetch is retried once its range is the next one to be written. The backoff is waited on the calling thread,
+ * so the workers shared with other transfers keep running meanwhile.
+ *
+ * On a failure the pending fetches are never interrupted, since an interrupt closes the channels the fetches of a
+ * transfer share. They are cancelled through a flag they check between their steps instead, and run() only returns
+ * once every fetch that already started has stopped.
+ */
+public class OrderedRangeStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderedRangeStreamer.class);
+
+    private final Executor executor;
+    private final long readAheadBytes;
+    private final AtomicLong movedBytes;
+    private final ChunkRetryPolicy retryPolicy;
+    private final AtomicInteger chunkRetries;
+
+    /**
+     * @param executor runs the fetches of the ranges
+     * @param readAheadBytes maximum number of fetched bytes waiting to be written
+     * @param movedBytes progress counter of the transfer. Ranges are counted once they are written, not when fetched
+     * @param retryPolicy decides whether and when a failed fetch is retried
+     * @param chunkRetries counter of the retries of the transfer
+     */
+    public OrderedRangeStreamer(Executor executor, long readAheadBytes, AtomicLong movedBytes,
+                                ChunkRetryPolicy retryPolicy, AtomicInteger chunkRetries) {
+        this.executor = executor;
+        this.readAheadBytes = readAheadBytes;
+        this.movedBytes = movedBytes;
+        this.retryPolicy = retryPolicy;
+        this.chunkRetries = chunkRetries;
+    }
+
+    /**
+     * Writes all the ranges provided by the iterator to the output stream and blocks until the last one is written
+     *
+     * @param ranges ranges of the file in the order they should be written
+     * @param outputStream stream to write the ranges to
+     * @return number of bytes written
+     * @throws Exception the failure of the first failed range or of the output stream
+     */
+    public long run(Iterator<Range> ranges, OutputStream outputStream) throws Exception {
+
+        Deque<Range> pending = new ArrayDeque<>();
+        List<Range> cancelled = new ArrayList<>();
+        long bufferedBytes = 0;
+        long written = 0;
+        // Taken from the iterator but not started yet because it did not fit in the read ahead limit
+        Range next = null;
+
+        try {
+            while (next != null || ranges.hasNext() || !pending.isEmpty()) {
+
+                while (next != null || ranges.hasNext()) {
+                    if (next == null) {
+                        next = ranges.next();
+                    }
+                    if (!pending.isEmpty() && bufferedBytes + next.size > readAheadBytes) {
+                        break;
+                    }
+                    start(next);
+                    pending.add(next);
+                    bufferedBytes += next.size;
+                    next = null;
+                }
+
+                Range head = pending.peek();
+                byte[] data = await(head);
+                pending.poll();
+                outputStream.write(data);
+                written += data.length;
+                movedBytes.addAndGet(data.length);
+                bufferedBytes -= head.size;
+            }
+            return written;
+
+        } catch (ExecutionException e) {
+            cancel(pending, cancelled);
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (Exception e) {
+            cancel(pending, cancelled);
+            throw e;
+        } finally {
+            awaitStopped(cancelled);
+        }
+    }
+
+    /*
+    Waits for the fetch of the range and starts it again after the backoff as long as the retry policy allows
+     */
+    private byte[] await(Range range) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return range.future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CancellationException || !retryPolicy.shouldRetry(attempt, cause)) {
+                    throw e;
+                }
+                long backoff = retryPolicy.backoffMillis(attempt, cause);
+                chunkRetries.incrementAndGet();
+                logger.warn("Fetch of a range failed in attempt {}. Retrying in {} ms", attempt, backoff, cause);
+                Thread.sleep(backoff);
+                start(range);
+            }
+        }
+    }
+
+    private void start(Range range) {
+        // A retry starts only after the previous fetch of the range stopped
+        range.started = false;
+        range.stopped = new CountDownLatch(1);
+        CountDownLatch stopped = range.stopped;
+        FutureTask<byte[]> future = new FutureTask<>(() -> {
+            range.started = true;
+            try {
+                if (range.cancelled) {
+                    throw new CancellationException("Range fetch was cancelled before it started");
+                }
+                return range.fetcher.fetch(() -> range.cancelled);
+            } finally {
+                stopped.countDown();
+            }
+        });
+        range.future = future;
+        executor.execute(future);
+    }
+
+    private void cancel(Deque<Range> pending, List<Range> cancelled) {
+        for (Range range : pending) {
+            range.cancelled = true;
+            range.future.cancel(false);
+            cancelled.add(range);
+        }
+        pending.clear();
+    }
+
+    /*
+    Waits until the cancelled fetches that started have stopped, so none of them reads from the connector of the
+    transfer once it is failed
+     */
+    private void awaitStopped(List<Range> cancelled) throws InterruptedException {
+        for (Range range : cancelled) {
+            // Fetches that never started never run
+            if (range.started) {
+                range.stopped.await();
+            }
+        }
+    }
+
+    /**
+     * Loads the content of a range
+     */
+    public interface Fetcher {
+
+        /**
+         * @param cancelled set once the transfer failed. The fetch should check it between its steps and give up once
+         *                  it is set
+         * @return the bytes of the range
+         */
+        byte[] fetch(BooleanSupplier cancelled) throws Exception;
+    }
+
+    public static class Range {
+        private final long size;
+        private final Fetcher fetcher;
+        private Future<byte[]> future;
+        // Set by the worker when the fetch starts running
+        private volatile boolean started = false;
+        private volatile boolean cancelled = false;
+        private volatile CountDownLatch stopped;
+
+        /**
+         * @param size number of bytes the fetcher returns
+         * @param fetcher loads the content of the range
+         */
+        public Range(long size, Fetcher fetcher) {
+            this.size = size;
+            this.fetcher = fetcher;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.admin.models.TransferState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Publishes the progress of all the active transfers of the agent from a single scheduled thread. Transfers only
+ * update a byte counter and the reporter samples the counters periodically. A transfer is reported only when its
+ * counter has moved since the last report, so idle or stalled transfers do not flood the status store. A transfer is
+ * never reported once it is unregistered, so its final state is not followed by a progress report.
+ */
+public class ProgressReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgressReporter.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Progress> activeTransfers = new ConcurrentHashMap<>();
+
+    /*
+    Held while a transfer is reported and while it is unregistered, so unregister waits for a report in progress
+     */
+    private final ReentrantLock reportLock = new ReentrantLock();
+
+    public ProgressReporter(long intervalMillis) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "transfer-progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts reporting the progress of a transfer
+     *
+     * @param transferId id of the transfer
+     * @param totalBytes size of the transferred file
+     * @param onStatusCallback callback to publish the progress
+     * @return counter the transfer should add the moved bytes to
+     */
+    public AtomicLong register(String transferId, long totalBytes, BiConsumer<String, TransferState> onStatusCallback) {
+        Progress progress = new Progress(totalBytes, onStatusCallback);
+        activeTransfers.put(transferId, progress);
+        return progress.movedBytes;
+    }
+
+    /**
+     * Stops reporting the progress of a transfer. Once this returns, no more progress of the transfer is published.
+     * The final state is published by the transfer itself
+     *
+     * @param transferId id of the transfer
+     */
+    public void unregister(String transferId) {
+        reportLock.lock();
+        try {
+            activeTransfers.remove(transferId);
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private void report() {
+        activeTransfers.forEach((transferId, progress) -> {
+            reportLock.lock();
+            try {
+                // Skips transfers unregistered after the iteration started
+                if (activeTransfers.get(transferId) != progress) {
+                    return;
+                }
+                long moved = progress.movedBytes.get();
+                if (moved == progress.reportedBytes) {
+                    return;
+                }
+                progress.reportedBytes = moved;
+
+                double transferPercentage = progress.totalBytes > 0 ? moved * 100.0 / progress.totalBytes : 0;
+                logger.info("Transfer percentage for transfer {} {}", transferId, transferPercentage);
+                progress.onStatusCallback.accept(transferId, new TransferState()
+                        .setPercentage(transferPercentage)
+                        .setState("RUNNING")
+                        .setUpdateTimeMils(System.currentTimeMillis())
+                        .setDescription("Transfer Progress Updated"));
+            } catch (Exception e) {
+                logger.warn("Failed to publish the progress of transfer {}", transferId, e);
+            } finally {
+                reportLock.unlock();
+            }
+        });
+    }
+
+    private static class Progress {
+        private final long totalBytes;
+        private final BiConsumer<String, TransferState> onStatusCallback;
+        private final AtomicLong movedBytes = new AtomicLong();
+        private long reportedBytes = 0;
+
+        private Progress(long totalBytes, BiConsumer<String, TransferState> onStatusCallback) {
+            this.totalBytes = totalBytes;
+            this.onStatusCallback = onStatusCallback;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes the buffers of a publisher to a subscriber while letting a listener see each buffer and hold back the next
+ * one. A single buffer is requested from the upstream publisher at a time and only while the subscriber has demand, so
+ * both the subscriber and the listener apply backpressure to the source. The pause asked by the listener is waited
+ * on the scheduler, without blocking a thread.
+ */
+public class ShapedPublisher implements Flow.Publisher<ByteBuffer> {
+
+    private final Flow.Publisher<ByteBuffer> upstream;
+    private final ScheduledExecutorService scheduler;
+    private final BufferListener listener;
+
+    /**
+     * @param upstream source of the buffers
+     * @param scheduler runs the delayed requests
+     * @param listener notified of each buffer before it is passed on
+     */
+    public ShapedPublisher(Flow.Publisher<ByteBuffer> upstream, ScheduledExecutorService scheduler,
+                           BufferListener listener) {
+        this.upstream = upstream;
+        this.scheduler = scheduler;
+        this.listener = listener;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        upstream.subscribe(new ShapingSubscriber(subscriber));
+    }
+
+    public interface BufferListener {
+
+        /**
+         * @param buffer the buffer being passed on. Must not be consumed
+         * @return nanoseconds to wait before the next buffer is requested
+         */
+        long onBuffer(ByteBuffer buffer) throws Exception;
+    }
+
+    private class ShapingSubscriber implements Flow.Subscriber<ByteBuffer>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super ByteBuffer> downstream;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicBoolean requested = new AtomicBoolean(false);
+        private volatile boolean paused = false;
+        private volatile boolean done = false;
+        private Flow.Subscription subscription;
+
+        private ShapingSubscriber(Flow.Subscriber<? super ByteBuffer> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            long waitNanos;
+            try {
+                waitNanos = listener.onBuffer(item);
+            } catch (Exception e) {
+                subscription.cancel();
+                onError(e);
+                return;
+            }
+            // Paused before the buffer is passed on as the subscriber may request the next one right away
+            paused = waitNanos > 0;
+            demand.decrementAndGet();
+            requested.set(false);
+            downstream.onNext(item);
+            if (waitNanos > 0) {
+                scheduler.schedule(() -> {
+                    paused = false;
+                    requestNext();
+                }, waitNanos, TimeUnit.NANOSECONDS);
+            } else {
+                requestNext();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!done) {
+                done = true;
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!done) {
+                done = true;
+                downstream.onComplete();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                subscription.cancel();
+                onError(new IllegalArgumentException("Requested " + n + " buffers"));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            requestNext();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            subscription.cancel();
+        }
+
+        private void requestNext() {
+            if (!done && !paused && demand.get() > 0 && requested.compareAndSet(false, true)) {
+                subscription.request(1);
+            }
+        }
+    }
+}
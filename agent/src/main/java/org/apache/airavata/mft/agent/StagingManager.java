@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Disk staging of chunks when chunks are not streamed from the source to the destination. Each transfer stages its
+ * chunks in a single file divided into fixed size slots, one slot per chunk being moved, and slots are reused by the
+ * following chunks. Data is written and read with positional {@link FileChannel} I/O so concurrent chunks do not share a
+ * file position.
+ *
+ * The space of all the staging files is bounded by a budget. A slot is only added when the budget allows it, otherwise
+ * the chunk waits until a slot of its transfer or some budget is released. Slots are filled with zeros when they are
+ * added so their space is allocated before a chunk is written to them. A tmpfs directory is preferred when it has room
+ * for the slots of the transfer on top of the slots promised to the transfers already staging there. Staging files are
+ * deleted when the transfer ends and leftovers of a crashed agent are deleted at the startup.
+ *
+ * Waiting is done on {@link ReentrantLock} conditions so waiting chunks do not pin the carriers of virtual threads.
+ */
+public class StagingManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(StagingManager.class);
+
+    private static final String PREFIX = "mft-staging-";
+    private static final int ZERO_BLOCK_SIZE = 1024 * 1024;
+
+    private final File diskDir;
+    private final File tmpfsDir;
+    private final long budgetBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition budgetReleased = lock.newCondition();
+    private long usedBytes = 0;
+
+    /*
+    Slot space promised to the transfers staging in the tmpfs directory and the part of it already allocated
+     */
+    private long tmpfsPromisedBytes = 0;
+    private long tmpfsAllocatedBytes = 0;
+
+    /**
+     * @param diskDir directory for the staging files
+     * @param tmpfsDir preferred memory backed directory. Eg: /dev/shm. Ignored if null or not writable
+     * @param budgetBytes maximum total size of the staging files
+     */
+    public StagingManager(String diskDir, String tmpfsDir, long budgetBytes) {
+        this.diskDir = new File(diskDir);
+        File tmpfs = tmpfsDir == null || tmpfsDir.isEmpty() ? null : new File(tmpfsDir);
+        this.tmpfsDir = tmpfs != null && tmpfs.isDirectory() && tmpfs.canWrite() ? tmpfs : null;
+        this.budgetBytes = budgetBytes;
+        purge(this.diskDir);
+        purge(this.tmpfsDir);
+    }
+
+    /**
+     * Creates the staging file of a transfer
+     *
+     * @param transferId id of the transfer
+     * @param slotSize size of the largest chunk of the transfer
+     * @param maxSlots maximum number of chunks of the transfer staged at a time
+     * @return staging of the transfer. Should be closed once the transfer ends
+     */
+    public TransferStaging open(String transferId, long slotSize, int maxSlots) throws IOException {
+        if (slotSize > budgetBytes) {
+            throw new IOException("Chunk of " + slotSize + " bytes does not fit into the staging budget of " +
+                    budgetBytes + " bytes");
+        }
+        int slotLimit = (int) Math.max(1, Math.min(maxSlots, budgetBytes / slotSize));
+        long promised = slotSize * slotLimit;
+        boolean inTmpfs = false;
+        lock.lock();
+        try {
+            // Usable space already excludes the allocated slots, so only the slots not allocated yet are deducted
+            if (tmpfsDir != null &&
+                    tmpfsDir.getUsableSpace() - (tmpfsPromisedBytes - tmpfsAllocatedBytes) >= promised) {
+                tmpfsPromisedBytes += promised;
+                inTmpfs = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        Path path = (inTmpfs ? tmpfsDir : diskDir).toPath().resolve(PREFIX + transferId);
+        logger.info("Staging chunks of transfer {} in {}", transferId, path);
+        try {
+            return new TransferStaging(path, slotSize, slotLimit, inTmpfs);
+        } catch (IOException e) {
+            if (inTmpfs) {
+                releaseTmpfs(promised, 0);
+            }
+            throw e;
+        }
+    }
+
+    private boolean reserve(long bytes) {
+        lock.lock();
+        try {
+            if (usedBytes + bytes > budgetBytes) {
+                return false;
+            }
+            usedBytes += bytes;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unreserve(long bytes) {
+        lock.lock();
+        try {
+            usedBytes -= bytes;
+            budgetReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitBudget() throws InterruptedException {
+        lock.lock();
+        try {
+            budgetReleased.await(1, TimeUnit.SECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void allocatedTmpfs(long bytes) {
+        lock.lock();
+        try {
+            tmpfsAllocatedBytes += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseTmpfs(long promised, long allocated) {
+        lock.lock();
+        try {
+            tmpfsPromisedBytes -= promised;
+            tmpfsAllocatedBytes -= allocated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void purge(File dir) {
+        File[] files = dir == null ? null : dir.listFiles((d, name) -> name.startsWith(PREFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.delete()) {
+                logger.info("Deleted leftover staging file {}", file);
+            }
+        }
+    }
+
+    public class TransferStaging implements AutoCloseable {
+
+        private final Path path;
+        private final long slotSize;
+        private final int slotLimit;
+        private final boolean inTmpfs;
+
+        private final ReentrantLock stagingLock = new ReentrantLock();
+        private final Condition slotReleased = stagingLock.newCondition();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private volatile FileChannel channel;
+        private int slotCount = 0;
+        private boolean closed = false;
+
+        private TransferStaging(Path path, long slotSize, int slotLimit, boolean inTmpfs) throws IOException {
+            this.path = path;
+            this.slotSize = slotSize;
+            this.slotLimit = slotLimit;
+            this.inTmpfs = inTmpfs;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Takes a slot for a chunk, waiting until a slot is free or the budget allows a new one
+         */
+        public Slot acquire() throws IOException, InterruptedException {
+            while (true) {
+                stagingLock.lock();
+                try {
+                    if (closed) {
+                        throw new IOException("Staging of " + path + " is closed");
+                    }
+                    if (!freeSlots.isEmpty()) {
+                        return new Slot(this, freeSlots.poll());
+                    }
+                    if (slotCount < slotLimit && reserve(slotSize)) {
+                        int slot = slotCount++;
+                        try {
+                            allocate(slot);
+                        } catch (IOException e) {
+                            // The slot is kept so the file stays contiguous. Chunks written to it allocate the rest
+                            freeSlots.add(slot);
+                            throw e;
+                        }
+                        return new Slot(this, slot);
+                    }
+                    if (slotCount > 0) {
+                        slotReleased.await();
+                        continue;
+                    }
+                } finally {
+                    stagingLock.unlock();
+                }
+                // No slot of this transfer to wait on, so wait for other transfers to release budget
+                awaitBudget();
+            }
+        }
+
+        /*
+        Fills a new slot with zeros so the file system allocates its space now. Writing a single byte at the end would
+        leave a sparse file and a full disk would only fail a chunk half way through
+         */
+        private void allocate(int slot) throws IOException {
+            if (inTmpfs) {
+                allocatedTmpfs(slotSize);
+            }
+            ByteBuffer zeros = ByteBuffer.allocate((int) Math.min(ZERO_BLOCK_SIZE, slotSize));
+            long position = slot * slotSize;
+            long end = position + slotSize;
+            while (position < end) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), end - position));
+                position += channel().write(zeros, position);
+            }
+        }
+
+        /*
+        The channel is shared by the chunks of the transfer. If it was closed under a chunk, for example by an interrupt,
+        it is opened again so the other chunks and the retries keep working
+         */
+        private FileChannel channel() throws IOException {
+            FileChannel current = channel;
+            if (current.isOpen()) {
+                return current;
+            }
+            stagingLock.lock();
+            try {
+                if (closed) {
+                    throw new ClosedChannelException();
+                }
+                if (!channel.isOpen()) {
+                    logger.warn("Staging file {} was closed under a chunk. Opening it again", path);
+                    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+                return channel;
+            } finally {
+                stagingLock.unlock();
+            }
+        }
+
+        private void release(int slot) {
+            stagingLock.lock();
+            try {
+                freeSlots.add(slot);
+                slotReleased.signalAll();
+            } finally {
+                stagingLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            stagingLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                slotReleased.signalAll();
+                try {
+                    channel.close();
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete staging file {}", path, e);
+                }
+            } finally {
+                stagingLock.unlock();
+            }
+            unreserve(slotCount * slotSize);
+            if (inTmpfs) {
+                releaseTmpfs(slotSize * slotLimit, slotCount * slotSize);
+            }
+        }
+    }
+
+    /**
+     * Region of a staging file holding a single chunk
+     */
+    public static class Slot implements AutoCloseable {
+
+        private final TransferStaging staging;
+        private final int slot;
+        private final long offset;
+
+        private Slot(TransferStaging staging, int slot) {
+            this.staging = staging;
+            this.slot = slot;
+            this.offset = slot * staging.slotSize;
+        }
+
+        /**
+         * @return a stream writing from the beginning of the slot
+         */
+        public OutputStream outputStream() {
+            return new OutputStream() {
+                private long position = offset;
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (position + len > offset + staging.slotSize) {
+                        throw new IOException("Chunk exceeds the staging slot size of " + staging.slotSize + " bytes");
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                    while (buffer.hasRemaining()) {
+                        position += staging.channel().write(buffer, position);
+                    }
+                }
+            };
+        }
+
+        /**
+         * @param length number of bytes written to the slot
+         * @return a stream reading the written bytes of the slot
+         */
+        public InputStream inputStream(long length) {
+            return new InputStream() {
+                private long position = offset;
+                private final long end = offset + length;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (position >= end) {
+                        return -1;
+                    }
+                    int toRead = (int) Math.min(len, end - position);
+                    int n = staging.channel().read(ByteBuffer.wrap(b, off, toRead), position);
+                    if (n > 0) {
+                        position += n;
+                    }
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            staging.release(slot);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.admin.models.TransferState;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Checksum of the bytes of a transfer computed while they are copied, in the order of the file. The MD5 is only
+ * computed when the source reported a plain MD5 to compare with, otherwise the CRC32C, which the JVM computes with
+ * hardware instructions, is recorded so the moved bytes can be verified later.
+ */
+public class StreamChecksum implements TransferChecksum {
+
+    private static final Pattern MD5_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    private final String expectedMd5;
+    private final MessageDigest md5;
+    private final CRC32C crc32c = new CRC32C();
+    private String actualMd5;
+    private String status = UNVERIFIED;
+
+    /**
+     * @param sourceMd5 MD5 reported by the source. Values that are not a plain MD5, such as the ETag of a multipart
+     *                  upload, are ignored
+     */
+    public StreamChecksum(String sourceMd5) {
+        String normalized = sourceMd5 == null ? "" : sourceMd5.replace("\"", "").trim().toLowerCase();
+        this.expectedMd5 = MD5_PATTERN.matcher(normalized).matches() ? normalized : null;
+        this.md5 = expectedMd5 != null ? Digests.newMd5() : null;
+    }
+
+    public void update(byte[] b, int off, int len) {
+        if (md5 != null) {
+            md5.update(b, off, len);
+        } else {
+            crc32c.update(b, off, len);
+        }
+    }
+
+    /**
+     * Adds the remaining bytes of the buffer to the checksum without consuming them
+     */
+    public void update(ByteBuffer data) {
+        if (md5 != null) {
+            md5.update(data.duplicate());
+        } else {
+            crc32c.update(data.duplicate());
+        }
+    }
+
+    /**
+     * @return a stream adding the bytes read to the checksum
+     */
+    public InputStream wrap(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    update(new byte[]{(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    update(b, off, n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * @return a stream adding the bytes written to the checksum
+     */
+    public OutputStream wrap(OutputStream outputStream) {
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(int b) throws IOException {
+                update(new byte[]{(byte) b}, 0, 1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                update(b, off, len);
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * Compares the computed MD5 with the one of the source. Should be called once all the bytes are copied
+     *
+     * @throws IOException if the checksums do not match
+     */
+    public void verify() throws IOException {
+        if (md5 == null) {
+            return;
+        }
+        actualMd5 = Digests.toHex(md5.digest());
+        if (!actualMd5.equals(expectedMd5)) {
+            status = MISMATCH;
+            throw new IOException("MD5 of the transferred bytes " + actualMd5 + " does not match the source MD5 " +
+                    expectedMd5);
+        }
+        status = VERIFIED;
+    }
+
+    @Override
+    public TransferState applyTo(TransferState state) {
+        if (md5 != null) {
+            return state.setChecksumAlgorithm("MD5").setChecksum(actualMd5).setChecksumStatus(status);
+        }
+        return state.setChecksumAlgorithm("CRC32C")
+                .setChecksum(String.format("%08x", crc32c.getValue()))
+                .setChecksumStatus(status);
+    }
+}
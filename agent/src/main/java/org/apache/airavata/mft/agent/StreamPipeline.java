@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.BufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies an input stream to an output stream with the reads and the writes running on separate threads. A reader
+ * thread fills pooled blocks from the input stream and hands them to the calling thread, which writes them to the
+ * output stream, through a queue bounded by the read ahead limit. A stall of one side only blocks the other side once
+ * the queue is full or empty, so the copy proceeds at the speed of the slower side instead of the sum of both latencies.
+ */
+public class StreamPipeline {
+
+    private static final Block END = new Block(null, 0);
+
+    /*
+    Time the reader is waited for after the copy failed before the failure is thrown anyway
+     */
+    private static final long READER_STOP_MILLIS = 5000;
+
+    /*
+    Interval the reader checks for a cancellation while the queue is full
+     */
+    private static final long OFFER_MILLIS = 100;
+
+    private final ThreadFactory threadFactory;
+    private final long readAheadBytes;
+
+    /**
+     * @param threadFactory creates the reader thread
+     * @param readAheadBytes maximum number of bytes read but not yet written
+     */
+    public StreamPipeline(ThreadFactory threadFactory, long readAheadBytes) {
+        this.threadFactory = threadFactory;
+        this.readAheadBytes = readAheadBytes;
+    }
+
+    /**
+     * Copies the input stream to the output stream until the end of the input stream and blocks until the last block
+     * is written. The streams are not closed
+     *
+     * @param blockSize size of the blocks read from the input stream
+     * @param writeListener notified on the calling thread after each block is written
+     * @return number of bytes written
+     * @throws Exception the failure of the input stream or of the output stream, whichever happened first
+     */
+    public long run(InputStream inputStream, OutputStream outputStream, int blockSize, WriteListener writeListener)
+            throws Exception {
+
+        BufferPool bufferPool = BufferPool.getDefault();
+        int capacity = (int) Math.max(2, Math.min(Integer.MAX_VALUE, readAheadBytes / blockSize));
+        BlockingQueue<Block> queue = new ArrayBlockingQueue<>(capacity);
+        Reader reader = new Reader(inputStream, queue, blockSize);
+        Thread readerThread = threadFactory.newThread(reader);
+        readerThread.start();
+
+        long written = 0;
+        try {
+            while (true) {
+                Block block = queue.take();
+                if (block == END) {
+                    break;
+                }
+                try {
+                    outputStream.write(block.data, 0, block.length);
+                } finally {
+                    bufferPool.release(block.data);
+                }
+                written += block.length;
+                writeListener.onWrite(block.length);
+            }
+            readerThread.join();
+            if (reader.error != null) {
+                throw reader.error;
+            }
+            return written;
+
+        } catch (Exception e) {
+            reader.cancelled = true;
+            readerThread.interrupt();
+            // The reader is waited for so it is not left reading from the input stream once the copy failed. Its blocks
+            // are dropped meanwhile so it never waits for space in the queue
+            long deadline = System.currentTimeMillis() + READER_STOP_MILLIS;
+            try {
+                do {
+                    drain(queue, bufferPool);
+                    readerThread.join(OFFER_MILLIS);
+                } while (readerThread.isAlive() && System.currentTimeMillis() < deadline);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            drain(queue, bufferPool);
+            throw e;
+        }
+    }
+
+    private static void drain(BlockingQueue<Block> queue, BufferPool bufferPool) {
+        Block block;
+        while ((block = queue.poll()) != null) {
+            if (block != END) {
+                bufferPool.release(block.data);
+            }
+        }
+    }
+
+    public interface WriteListener {
+        void onWrite(int bytes) throws Exception;
+    }
+
+    private static class Reader implements Runnable {
+
+        private final InputStream inputStream;
+        private final BlockingQueue<Block> queue;
+        private final int blockSize;
+        private volatile Exception error;
+        // Set by the writer once the copy failed. Checked in case the input stream swallows the interrupt
+        private volatile boolean cancelled = false;
+
+        private Reader(InputStream inputStream, BlockingQueue<Block> queue, int blockSize) {
+            this.inputStream = inputStream;
+            this.queue = queue;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public void run() {
+            BufferPool bufferPool = BufferPool.getDefault();
+            try {
+                while (true) {
+                    if (cancelled) {
+                        throw new InterruptedIOException("Stream pipeline was cancelled");
+                    }
+                    byte[] data = bufferPool.acquire(blockSize);
+                    int n;
+                    try {
+                        n = inputStream.read(data, 0, blockSize);
+                    } catch (IOException e) {
+                        bufferPool.release(data);
+                        throw e;
+                    }
+                    if (n < 0) {
+                        bufferPool.release(data);
+                        break;
+                    }
+                    try {
+                        Block block = new Block(data, n);
+                        while (!queue.offer(block, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+                            if (cancelled) {
+                                throw new InterruptedException();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        bufferPool.release(data);
+                        throw new InterruptedIOException("Stream pipeline was cancelled");
+                    }
+                }
+                queue.put(END);
+            } catch (Exception e) {
+                error = e;
+                // Unwritten blocks are dropped so the end marker always fits and the writer stops
+                Block block;
+                while ((block = queue.poll()) != null) {
+                    bufferPool.release(block.data);
+                }
+                queue.offer(END);
+            }
+        }
+    }
+
+    private static class Block {
+        private final byte[] data;
+        private final int length;
+
+        private Block(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Cuts the sequential stream of a streaming only source into parts that can be uploaded concurrently through a
+ * chunked destination. Parts are read on demand, so the number of parts held in memory is bounded by how many the
+ * caller keeps in flight.
+ */
+public class StreamSplitter {
+
+    private static final long MAX_PART_SIZE = Integer.MAX_VALUE - 8;
+
+    private final InputStream inputStream;
+    private final long fileLength;
+    private final ChunkSizer chunkSizer;
+
+    private long position = 0;
+    private int partIdx = 0;
+
+    public StreamSplitter(InputStream inputStream, long fileLength, ChunkSizer chunkSizer) {
+        this.inputStream = inputStream;
+        this.fileLength = fileLength;
+        this.chunkSizer = chunkSizer;
+    }
+
+    public boolean hasNext() {
+        return position < fileLength;
+    }
+
+    /**
+     * Reads the next part from the stream. Blocks until the whole part is available
+     *
+     * @return the part
+     * @throws IOException if the stream fails or ends before the expected length of the file
+     */
+    public Part next() throws IOException {
+        long partSize = chunkSizer.nextChunkSize(position, partIdx);
+        if (partSize > MAX_PART_SIZE) {
+            throw new IOException("Part size " + partSize + " is too large to be buffered in memory");
+        }
+
+        byte[] data = new byte[(int) partSize];
+        int read = 0;
+        while (read < data.length) {
+            int n = inputStream.read(data, read, data.length - read);
+            if (n == -1) {
+                throw new EOFException("Source stream ended at " + (position + read) + " of " + fileLength + " bytes");
+            }
+            read += n;
+        }
+
+        Part part = new Part(partIdx, position, position + partSize, data);
+        position += partSize;
+        partIdx++;
+        return part;
+    }
+
+    public static class Part {
+        private final int partIdx;
+        private final long startByte;
+        private final long endByte;
+        private final byte[] data;
+
+        private Part(int partIdx, long startByte, long endByte, byte[] data) {
+            this.partIdx = partIdx;
+            this.startByte = startByte;
+            this.endByte = endByte;
+            this.data = data;
+        }
+
+        public int getPartIdx() {
+            return partIdx;
+        }
+
+        public long getStartByte() {
+            return startByte;
+        }
+
+        public long getEndByte() {
+            return endByte;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+}
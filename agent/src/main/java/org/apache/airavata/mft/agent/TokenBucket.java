@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Byte rate limiter refilled continuously at the configured rate and holding at most one second worth of tokens. A
+ * caller may take more tokens than available. The bucket then goes into debt and the caller waits until the debt is
+ * repaid, so large requests are smoothed over time instead of being rejected. A rate of 0 or less means unlimited.
+ * The rate can be changed at any time.
+ */
+public class TokenBucket {
+
+    /*
+    A ReentrantLock instead of a monitor as the bucket is shared by all the chunk threads, which may be virtual threads
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long bytesPerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokens = Math.max(bytesPerSecond, 0);
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public void setRate(long bytesPerSecond) {
+        lock.lock();
+        try {
+            refill();
+            this.bytesPerSecond = bytesPerSecond;
+            this.tokens = Math.min(tokens, Math.max(bytesPerSecond, 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRate() {
+        lock.lock();
+        try {
+            return bytesPerSecond;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the tokens for the given number of bytes without waiting
+     *
+     * @return nanoseconds the caller should wait before moving the bytes. 0 if the bytes can be moved right away
+     */
+    public long reserve(long bytes) {
+        lock.lock();
+        try {
+            if (bytesPerSecond <= 0) {
+                return 0;
+            }
+            refill();
+            tokens -= bytes;
+            return tokens >= 0 ? 0 : (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the tokens for the given number of bytes and waits until the bucket is out of debt
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long waitNanos = reserve(bytes);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            tokens = Math.min(bytesPerSecond, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+        }
+        lastRefillNanos = now;
+    }
+}
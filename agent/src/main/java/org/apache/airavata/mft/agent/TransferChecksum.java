@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.admin.models.TransferState;
+
+/**
+ * Checksum of the bytes moved by a transfer and the result of verifying it
+ */
+public interface TransferChecksum {
+
+    String VERIFIED = "VERIFIED";
+    String MISMATCH = "MISMATCH";
+    String UNVERIFIED = "UNVERIFIED";
+
+    /**
+     * Records the checksum and the verification result in the given state
+     */
+    TransferState applyTo(TransferState state);
+}
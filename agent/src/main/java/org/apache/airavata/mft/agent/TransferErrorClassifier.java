@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.EndpointThrottledException;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.file.FileSystemException;
+import java.util.Optional;
+
+/**
+ * Decides whether a failed chunk is worth another attempt. Timeouts, connection resets, throttling and server side
+ * (5xx) errors are retryable while authorization, not found, local file system and other client errors are fatal.
+ *
+ * Storage SDKs are not referenced directly so that the agent does not need every transport on its classpath. Http
+ * status codes are read through the accessors the SDKs expose on their service exceptions (getStatusCode() of AWS v1
+ * and Azure, statusCode() of AWS v2, getResponse().getStatusCode() of jclouds).
+ */
+public final class TransferErrorClassifier {
+
+    private TransferErrorClassifier() {
+    }
+
+    public static boolean isRetryable(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+
+            if (t instanceof InterruptedException) {
+                return false;
+            }
+
+            if (t instanceof EndpointThrottledException) {
+                return true;
+            }
+
+            Optional<Integer> statusCode = statusCode(t);
+            if (statusCode.isPresent()) {
+                int code = statusCode.get();
+                return code >= 500 || code == 429 || code == 408;
+            }
+
+            String className = t.getClass().getName();
+            if (className.equals("org.jclouds.rest.AuthorizationException") ||
+                    className.equals("org.jclouds.rest.ResourceNotFoundException")) {
+                return false;
+            }
+
+            // FileSystemException covers AccessDeniedException, NoSuchFileException and the other local file errors
+            if (t instanceof FileNotFoundException || t instanceof FileSystemException ||
+                    t instanceof UnknownHostException) {
+                return false;
+            }
+
+            if (t instanceof InterruptedIOException || t instanceof SocketException || t instanceof EOFException) {
+                return true;
+            }
+
+            if (t instanceof IOException && t.getCause() == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the error is the storage rejecting a request because of its load (Eg: 503 SlowDown of S3)
+     */
+    public static boolean isThrottled(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof EndpointThrottledException) {
+                return true;
+            }
+            Optional<Integer> statusCode = statusCode(t);
+            if (statusCode.isPresent()) {
+                return statusCode.get() == 429 || statusCode.get() == 503;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the delay in milliseconds a throttling storage asked for before the next request or -1 if it did not ask
+     */
+    public static long retryAfterMillis(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof EndpointThrottledException) {
+                return ((EndpointThrottledException) t).getRetryAfterMillis();
+            }
+        }
+        return -1;
+    }
+
+    private static Optional<Integer> statusCode(Throwable t) {
+        Object source = t;
+        Method accessor = findAccessor(t.getClass(), "getStatusCode", "statusCode");
+        if (accessor == null) {
+            Method responseAccessor = findAccessor(t.getClass(), "getResponse");
+            if (responseAccessor == null) {
+                return Optional.empty();
+            }
+            source = invoke(responseAccessor, t);
+            if (source == null) {
+                return Optional.empty();
+            }
+            accessor = findAccessor(source.getClass(), "getStatusCode");
+            if (accessor == null) {
+                return Optional.empty();
+            }
+        }
+
+        Object code = invoke(accessor, source);
+        return code instanceof Integer && (Integer) code > 0 ? Optional.of((Integer) code) : Optional.empty();
+    }
+
+    private static Method findAccessor(Class<?> clazz, String... names) {
+        for (String name : names) {
+            try {
+                Method method = clazz.getMethod(name);
+                if (method.getParameterCount() == 0) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // Try the next name
+            }
+        }
+        return null;
+    }
+
+    private static Object invoke(Method method, Object target) {
+        try {
+            return method.invoke(target);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.api.service.TransferApiRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses how the bytes of a transfer are moved from the modes the connectors of both sides support. A request may ask
+ * for a mode, otherwise the planner weighs the extra requests of an upload session against the parallelism it buys.
+ * Moving a file in parallel chunks only pays off when a single stream would take longer than a chunk is meant to take,
+ * so files below that are streamed, with a single request if the destination allows it, and larger files are chunked.
+ *
+ * The time of a single stream is estimated from the throughput observed for the same pair of storage types, which
+ * follows the latency and the bandwidth of the endpoints. Until there are observations, files larger than the initial
+ * chunk size are chunked. Files larger than a few initial chunks are always chunked, since on a fast route a single
+ * stream moves hundreds of megabytes within the chunk time while parallel chunks would still move them faster.
+ */
+public class TransferPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferPlanner.class);
+
+    public enum Mode {
+        SINGLE_SHOT,
+        STREAMING,
+        CHUNKED,
+        SPLIT,
+        REASSEMBLE
+    }
+
+    private static final List<Mode> SMALL_FILE_PREFERENCE = List.of(Mode.SINGLE_SHOT, Mode.STREAMING, Mode.CHUNKED,
+            Mode.SPLIT, Mode.REASSEMBLE);
+    private static final List<Mode> LARGE_FILE_PREFERENCE = List.of(Mode.CHUNKED, Mode.SPLIT, Mode.REASSEMBLE,
+            Mode.STREAMING, Mode.SINGLE_SHOT);
+
+    // Weight of the newest observation in the throughput average of a route
+    private static final double SMOOTHING = 0.2;
+
+    // Number of initial chunks above which a file is chunked regardless of the observed throughput
+    private static final int MAX_STREAMED_CHUNKS = 4;
+
+    private final long chunkSize;
+    private final long targetChunkNanos;
+    private final Map<String, Double> routeThroughputs = new ConcurrentHashMap<>();
+
+    /**
+     * @param chunkSize initial chunk size in bytes
+     * @param targetChunkMillis time a chunk is meant to take
+     */
+    public TransferPlanner(long chunkSize, long targetChunkMillis) {
+        this.chunkSize = chunkSize;
+        this.targetChunkNanos = TimeUnit.MILLISECONDS.toNanos(targetChunkMillis);
+    }
+
+    public static String route(TransferApiRequest request) {
+        return request.getSourceType() + "->" + request.getDestinationType();
+    }
+
+    /**
+     * @param request request of the transfer
+     * @param supported modes the connectors of both sides support
+     * @param fileSize size of the file in bytes
+     * @param maxSingleShotSize largest file the destination writes with a single request. 0 if it can not
+     * @return the mode to move the file with
+     * @throws Exception if the requested mode is not supported or no mode is supported
+     */
+    public Mode plan(TransferApiRequest request, EnumSet<Mode> supported, long fileSize, long maxSingleShotSize)
+            throws Exception {
+
+        if (fileSize > maxSingleShotSize) {
+            supported.remove(Mode.SINGLE_SHOT);
+        }
+
+        TransferApiRequest.TransferMode requested = request.getTransferMode();
+        if (requested != TransferApiRequest.TransferMode.AUTO
+                && requested != TransferApiRequest.TransferMode.UNRECOGNIZED) {
+            Mode mode = Mode.valueOf(requested.name());
+            if (!supported.contains(mode)) {
+                throw new Exception("Transfer mode " + mode + " is not supported from " + request.getSourceType() +
+                        " to " + request.getDestinationType() + " for a file of " + fileSize + " bytes");
+            }
+            return mode;
+        }
+
+        long streamedLimit = Math.min(Math.max(chunkSize, streamableBytes(route(request))),
+                MAX_STREAMED_CHUNKS * chunkSize);
+        boolean parallel = fileSize > streamedLimit;
+        for (Mode mode : parallel ? LARGE_FILE_PREFERENCE : SMALL_FILE_PREFERENCE) {
+            if (supported.contains(mode)) {
+                logger.debug("Planned {} mode for {} bytes from {} to {}", mode, fileSize, request.getSourceType(),
+                        request.getDestinationType());
+                return mode;
+            }
+        }
+        throw new Exception("No matching connector found to perform the transfer");
+    }
+
+    /**
+     * Records a single stream move of the route. Eg: a chunk or a streaming transfer
+     */
+    public void recordMove(String route, long bytes, long nanos) {
+        if (bytes <= 0 || nanos <= 0) {
+            return;
+        }
+        double throughput = bytes * 1e9 / nanos;
+        routeThroughputs.merge(route, throughput, (old, latest) -> old + SMOOTHING * (latest - old));
+    }
+
+    /*
+    Bytes a single stream of the route moves within the target chunk time. 0 without observations
+     */
+    private long streamableBytes(String route) {
+        Double throughput = routeThroughputs.get(route);
+        return throughput == null ? 0 : (long) (throughput * targetChunkNanos / 1e9);
+    }
+}
@@ -25,40 +25,184 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 
 public class TransportMediator {
 
     private static final Logger logger = LoggerFactory.getLogger(TransportMediator.class);
 
-    /*
-    Number of maximum transfers handled at atime
-     */
-    private final ExecutorService monitorPool;
+    private final ProgressReporter progressReporter;
+
+    private final BandwidthShaper bandwidthShaper;
 
     private String tempDataDir = "/tmp";
     private final int chunkedSize;
     private final boolean doChunkStreaming;
 
-    private final ExecutorService chunkedExecutorService;
+    /*
+    Maximum number of chunks of a single transfer submitted to the chunked executor at a time
+     */
+    private final int chunkWindowSize;
+
+    /*
+    Upper bound in MB and the preferred duration in seconds of adaptively sized chunks
+     */
+    private final int maxChunkedSize;
+    private final int chunkTargetSeconds;
+
+    private final FairShareChunkExecutor chunkedExecutorService;
+
+    private final ChunkRetryPolicy retryPolicy;
+
+    /*
+    Maximum number of parts read from a streaming source and kept in memory while they are uploaded to a chunked
+    destination
+     */
+    private final int splitBufferedParts;
+
+    /*
+    Maximum size in MB of the data read ahead of the stream position when a chunked source or a streaming source
+    feeds a streaming destination
+     */
+    private final int readAheadSize;
+
+    /*
+    Creates the reader threads of the streaming transfers
+     */
+    private final ThreadFactory streamThreadFactory;
+
+    /*
+    Journals of chunked transfers that were not re-dispatched within this period are removed at the startup
+     */
+    private static final long JOURNAL_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final String journalDir;
+
+    /*
+    Records the completions of the chunks moved through non blocking connectors, so the journal is not forced to the
+    disk on the completion threads of the connectors
+     */
+    private final ExecutorService journalWriter;
+
+    /*
+    Disk staging of chunks when chunks are not streamed from the source to the destination
+     */
+    private final StagingManager stagingManager;
+
+    /*
+    Budget of the chunk data held in the heap. Streamed chunks that do not fit are staged instead, while the buffered
+    parts of split transfers and the read ahead of reassembled transfers shrink to what fits. Null if not limited
+     */
+    private final MemoryBudget chunkMemoryBudget;
+
+    /*
+    Chooses the transfer mode of each request
+     */
+    private final TransferPlanner transferPlanner;
+
+    /*
+    Whether the bytes of transfers copied in the order of the file are checksummed and verified against the source
+     */
+    private final boolean checksumEnabled;
+
+    /*
+    A chunk running longer than this multiple of the median chunk latency is started again on an idle worker. 0
+    disables speculative attempts
+     */
+    private final double speculationMultiplier;
+
+    private final EndpointLimiterRegistry endpointLimiters;
+
+    /*
+    Whether transfers between two non blocking connectors move their chunks without a worker thread per chunk
+     */
+    private final boolean asyncChunkEnabled;
+
+    /*
+    Runs the delayed requests and retries of the chunks moved through non blocking connectors
+     */
+    private final ScheduledExecutorService asyncEventLoop;
+
+    /*
+    Maximum number of chunks of a transfer in flight when both connectors are non blocking. Chunks in flight hold no
+    thread so this is larger than the window of blocking connectors
+     */
+    private final int asyncChunkWindowSize;
 
     public TransportMediator(String tempDataDir,
-                             int concurrentTransfers,
+                             long progressIntervalMillis,
                              int concurrentChunkedThreads,
+                             ThreadFactory chunkThreadFactory,
                              int chunkedSize,
-                             boolean doChunkStreaming) {
+                             boolean doChunkStreaming,
+                             int chunkWindowSize,
+                             int maxChunkedSize,
+                             int chunkTargetSeconds,
+                             ChunkRetryPolicy retryPolicy,
+                             int splitBufferedParts,
+                             int readAheadSize,
+                             BandwidthShaper bandwidthShaper,
+                             String stagingTmpfsDir,
+                             int stagingBudgetSize,
+                             int chunkMemoryBudgetSize,
+                             boolean checksumEnabled,
+                             double speculationMultiplier,
+                             EndpointLimiterRegistry endpointLimiters,
+                             boolean asyncChunkEnabled,
+                             int asyncEventLoopThreads,
+                             int asyncChunkWindowSize) {
         this.tempDataDir = tempDataDir;
-        monitorPool = Executors.newFixedThreadPool(concurrentTransfers);
+        progressReporter = new ProgressReporter(progressIntervalMillis);
         this.chunkedSize = chunkedSize;
-        chunkedExecutorService = Executors.newFixedThreadPool(concurrentChunkedThreads);
+        chunkedExecutorService = new FairShareChunkExecutor(concurrentChunkedThreads, chunkThreadFactory);
         this.doChunkStreaming = doChunkStreaming;
+        this.chunkWindowSize = chunkWindowSize;
+        this.maxChunkedSize = maxChunkedSize;
+        this.chunkTargetSeconds = chunkTargetSeconds;
+        this.retryPolicy = retryPolicy;
+        this.splitBufferedParts = Math.max(splitBufferedParts, 1);
+        this.readAheadSize = readAheadSize;
+        this.streamThreadFactory = chunkThreadFactory;
+        this.transferPlanner = new TransferPlanner(chunkedSize * 1024 * 1024L, chunkTargetSeconds * 1000L);
+        this.bandwidthShaper = bandwidthShaper;
+        this.journalDir = tempDataDir + File.separator + "journal";
+        ChunkJournal.purgeStale(journalDir, JOURNAL_RETENTION_MILLIS);
+        this.journalWriter = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "mft-journal-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.stagingManager = new StagingManager(tempDataDir, stagingTmpfsDir, stagingBudgetSize * 1024 * 1024L);
+        this.chunkMemoryBudget = chunkMemoryBudgetSize > 0 ? new MemoryBudget(chunkMemoryBudgetSize * 1024 * 1024L) : null;
+        this.checksumEnabled = checksumEnabled;
+        this.speculationMultiplier = speculationMultiplier;
+        this.endpointLimiters = endpointLimiters;
+        this.asyncChunkEnabled = asyncChunkEnabled;
+        this.asyncEventLoop = Executors.newScheduledThreadPool(Math.max(asyncEventLoopThreads, 1), r -> {
+            Thread thread = new Thread(r, "mft-async-event-loop");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.asyncChunkWindowSize = asyncChunkWindowSize;
     }
 
     public void transferSingleThread(String transferId,
@@ -68,7 +212,11 @@ public class TransportMediator {
                                      BiConsumer<String, TransferState> onStatusCallback,
                                      BiConsumer<String, Boolean> exitingCallback) {
 
-        final AtomicBoolean transferInProgress = new AtomicBoolean(true);
+        final AtomicInteger chunkRetries = new AtomicInteger(0);
+
+        TransferChecksum checksum = null;
+        TransferState finalState = null;
+        boolean succeeded = false;
 
         try {
 
@@ -92,21 +240,46 @@ public class TransportMediator {
                     .setUpdateTimeMils(System.currentTimeMillis())
                     .setDescription("Transfer is ongoing"));
 
+            final AtomicLong movedBytes = progressReporter.register(transferId,
+                    srcCC.getMetadata().getResourceSize(), onStatusCallback);
+
             long start = System.currentTimeMillis();
 
-            // Give priority for chunked transfers.
-            // TODO: Provide a preference at the API level
+            EnumSet<TransferPlanner.Mode> supportedModes = EnumSet.noneOf(TransferPlanner.Mode.class);
             if (inChunkedConnectorOp.isPresent() && outChunkedConnectorOp.isPresent()) {
+                supportedModes.add(TransferPlanner.Mode.CHUNKED);
+            }
+            if (inStreamingConnectorOp.isPresent() && outChunkedConnectorOp.isPresent()
+                    && request.getDestinationChildResourcePath().equals("")) {
+                supportedModes.add(TransferPlanner.Mode.SPLIT);
+            }
+            if (inChunkedConnectorOp.isPresent() && outStreamingConnectorOp.isPresent()
+                    && request.getSourceChildResourcePath().equals("")) {
+                supportedModes.add(TransferPlanner.Mode.REASSEMBLE);
+            }
+            if (inStreamingConnectorOp.isPresent() && outStreamingConnectorOp.isPresent()) {
+                supportedModes.add(TransferPlanner.Mode.STREAMING);
+                if (outStreamingConnectorOp.get() instanceof SingleShotOutgoingConnector) {
+                    supportedModes.add(TransferPlanner.Mode.SINGLE_SHOT);
+                }
+            }
+            long maxSingleShotSize = outStreamingConnectorOp.filter(c -> c instanceof SingleShotOutgoingConnector)
+                    .map(c -> c.getCapabilities().getMaxSingleShotSize()).orElse(0L);
 
-                logger.info("Starting the chunked transfer for transfer {}", transferId);
+            TransferPlanner.Mode mode = transferPlanner.plan(request, supportedModes,
+                    srcCC.getMetadata().getResourceSize(), maxSingleShotSize);
+            String route = TransferPlanner.route(request);
 
-                long chunkSize = chunkedSize * 1024 * 1024L;
+            if (mode == TransferPlanner.Mode.CHUNKED) {
 
-                CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(chunkedExecutorService);
+                logger.info("Starting the chunked transfer for transfer {}", transferId);
 
                 long fileLength = srcCC.getMetadata().getResourceSize();
-                long uploadLength = 0L;
-                int chunkIdx = 0;
+                ChunkSizer chunkSizer = new ChunkSizer(fileLength,
+                        chunkedSize * 1024 * 1024L,
+                        maxChunkedSize * 1024 * 1024L,
+                        chunkTargetSeconds * 1000L,
+                        outChunkedConnectorOp.get().getCapabilities());
 
                 IncomingChunkedConnector inConnector = inChunkedConnectorOp
                         .orElseThrow(() -> new Exception("Could not find an in chunked connector for type " + request.getSourceType()));
@@ -117,40 +290,297 @@ public class TransportMediator {
                 inConnector.init(srcCC);
                 outConnector.init(dstCC);
 
+                ChunkedChecksum chunkedChecksum = null;
+                if (checksumEnabled) {
+                    chunkedChecksum = new ChunkedChecksum(outConnector instanceof ChecksumReportingConnector ?
+                            ((ChecksumReportingConnector) outConnector).getChecksumAlgorithm() :
+                            ChecksumReportingConnector.CRC32C, fileLength);
+                    checksum = chunkedChecksum;
+                }
+
+                TransferRun run = new TransferRun(transferId, route, chunkSizer, movedBytes,
+                        shapingFor(transferId, request, inConnector, outConnector),
+                        endpointLimiters.forEndpoints(storageKeys(request, inConnector, outConnector)), chunkedChecksum);
+
+                // Non blocking connectors move chunks without holding a worker thread per chunk when enabled
+                boolean async = asyncChunkEnabled && inConnector instanceof AsyncIncomingChunkedConnector
+                        && outConnector instanceof AsyncOutgoingChunkedConnector;
+                int windowSize = chunkWindowFor(async ? asyncChunkWindowSize : chunkWindowSize, inConnector, outConnector);
+                ChunkJournal journal = null;
+                StagingManager.TransferStaging staging = null;
+                try {
+                    if (outConnector instanceof ResumableOutgoingChunkedConnector) {
+                        journal = openJournal(transferId, srcCC, (ResumableOutgoingChunkedConnector) outConnector);
+                        // Chunks uploaded before the restart are skipped but still count towards the progress
+                        for (UploadedChunk uploaded : journal.getUploadedChunks()) {
+                            movedBytes.addAndGet(uploaded.getEndByte() - uploaded.getStartByte());
+                        }
+                    }
+                    boolean positional = inConnector instanceof PositionalIncomingConnector
+                            && outConnector instanceof PositionalOutgoingConnector;
+                    if (!async && !positional && (!doChunkStreaming || chunkMemoryBudget != null)) {
+                        staging = stagingManager.open(transferId, chunkSizer.getMaxChunkSize(), windowSize);
+                    }
+
+                    final ChunkJournal chunkJournal = journal;
+                    final StagingManager.TransferStaging chunkStaging = staging;
+                    final List<UploadedChunk> pendingChunks = journal != null ? journal.getPendingChunks() : List.of();
+                    final long[] resumePosition = journal != null ? journal.getNextChunkPosition() : new long[]{0, 0};
+
+                    Iterator<ChunkMover> chunks = new Iterator<ChunkMover>() {
+                        // Chunks dispatched before the restart but never completed are moved first with the same ranges
+                        int pendingIdx = 0;
+                        long uploadLength = resumePosition[0];
+                        int chunkIdx = (int) resumePosition[1];
+
+                        @Override
+                        public boolean hasNext() {
+                            return pendingIdx < pendingChunks.size() || uploadLength < fileLength;
+                        }
+
+                        @Override
+                        public ChunkMover next() {
+                            if (pendingIdx < pendingChunks.size()) {
+                                UploadedChunk pending = pendingChunks.get(pendingIdx++);
+                                return new ChunkMover(inConnector, outConnector, pending.getStartByte(),
+                                        pending.getEndByte(), pending.getChunkId(), run, chunkStaging, chunkJournal);
+                            }
+
+                            long endPos = uploadLength + chunkSizer.nextChunkSize(uploadLength, chunkIdx);
+                            if (chunkJournal != null) {
+                                try {
+                                    chunkJournal.recordDispatch(chunkIdx, uploadLength, endPos);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            }
+                            ChunkMover mover = new ChunkMover(inConnector, outConnector, uploadLength, endPos,
+                                    chunkIdx, run, chunkStaging, chunkJournal);
+                            uploadLength = endPos;
+                            chunkIdx++;
+                            return mover;
+                        }
+                    };
+
+                    if (async) {
+                        logger.info("Moving the chunks of transfer {} through non blocking connectors", transferId);
+                        int totalChunks = new AsyncChunkScheduler(asyncEventLoop, windowSize, retryPolicy,
+                                chunkRetries).run(chunks);
+                        logger.info("Moved {} chunks for transfer {}", totalChunks, transferId);
+                    } else {
+                        Executor transferExecutor = chunkedExecutorService.forTransfer(transferId, request.getWeight());
+                        try {
+                            int totalChunks = new WindowedChunkScheduler(transferExecutor, windowSize,
+                                    speculationMultiplier, chunkedExecutorService::getIdleWorkers, retryPolicy,
+                                    chunkRetries).run(chunks);
+                            logger.info("Moved {} chunks for transfer {}", totalChunks, transferId);
+                        } finally {
+                            chunkedExecutorService.release(transferId);
+                        }
+                    }
+
+                    inConnector.complete();
+                    outConnector.complete();
+                    logger.info("Completed chunked transfer for transfer {}", transferId);
+
+                    if (journal != null) {
+                        journal.delete();
+                    }
+
+                    if (chunkedChecksum != null) {
+                        chunkedChecksum.verify(outConnector instanceof ChecksumReportingConnector ?
+                                ((ChecksumReportingConnector) outConnector).getUploadedChecksum() : Optional.empty());
+                    }
+
+                } catch (Exception e) {
+                    inConnector.failed();
+                    outConnector.failed();
+                    if (journal != null) {
+                        // Kept with the upload session left open, so a re-dispatch of the transfer resumes it. Journals
+                        // that are never re-dispatched are purged at the startup
+                        try {
+                            journal.close();
+                        } catch (IOException closeError) {
+                            logger.warn("Failed to close the chunk journal of transfer {}", transferId, closeError);
+                        }
+                    }
+                    throw e;
+                } finally {
+                    if (staging != null) {
+                        staging.close();
+                    }
+                }
+            } else if (mode == TransferPlanner.Mode.SPLIT) {
+
+                logger.info("Starting split streaming transfer for transfer {}", transferId);
+
+                long fileLength = srcCC.getMetadata().getResourceSize();
+                // Parts are buffered in memory so they are not grown beyond the configured chunk size
+                ChunkSizer chunkSizer = new ChunkSizer(fileLength,
+                        chunkedSize * 1024 * 1024L,
+                        chunkedSize * 1024 * 1024L,
+                        0,
+                        outChunkedConnectorOp.get().getCapabilities());
+
+                IncomingStreamingConnector inConnector = inStreamingConnectorOp.get();
+                OutgoingChunkedConnector outConnector = outChunkedConnectorOp.get();
+
+                inConnector.init(srcCC);
+                outConnector.init(dstCC);
+
+                TransferRun run = new TransferRun(transferId, route, chunkSizer, movedBytes,
+                        shapingFor(transferId, request, inConnector, outConnector),
+                        endpointLimiters.forEndpoints(storageKeys(request, inConnector, outConnector)), null);
+
                 try {
-                    while (uploadLength < fileLength) {
+                    String srcChild = request.getSourceChildResourcePath();
+                    InputStream sourceStream = run.shaping.wrap(srcChild.equals("") ?
+                            inConnector.fetchInputStream() : inConnector.fetchInputStream(srcChild));
+                    StreamChecksum streamChecksum = null;
+                    if (checksumEnabled) {
+                        streamChecksum = new StreamChecksum(srcCC.getMetadata().getMd5sum());
+                        sourceStream = streamChecksum.wrap(sourceStream);
+                        checksum = streamChecksum;
+                    }
+                    try (InputStream inputStream = sourceStream) {
+
+                        StreamSplitter splitter = new StreamSplitter(inputStream, fileLength, chunkSizer);
+                        Iterator<PartUploader> parts = new Iterator<PartUploader>() {
+                            @Override
+                            public boolean hasNext() {
+                                return splitter.hasNext();
+                            }
 
-                        long endPos = uploadLength + chunkSize;
-                        if (endPos > fileLength) {
-                            endPos = fileLength;
+                            @Override
+                            public PartUploader next() {
+                                try {
+                                    return new PartUploader(outConnector, splitter.next(), run);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            }
+                        };
+
+                        // The parts in flight are held in the heap, so as many as the memory budget allows are kept
+                        int bufferedParts = Math.min(chunkWindowFor(outConnector), splitBufferedParts);
+                        long partBytes = chunkSizer.getMaxChunkSize();
+                        if (chunkMemoryBudget != null) {
+                            bufferedParts = chunkMemoryBudget.reserveUnits(bufferedParts, partBytes);
                         }
+                        Executor transferExecutor = chunkedExecutorService.forTransfer(transferId, request.getWeight());
+                        try {
+                            int totalParts = new WindowedChunkScheduler(transferExecutor, bufferedParts,
+                                    speculationMultiplier, chunkedExecutorService::getIdleWorkers, retryPolicy,
+                                    chunkRetries).run(parts);
+                            logger.info("Uploaded {} parts for transfer {}", totalParts, transferId);
+                        } finally {
+                            chunkedExecutorService.release(transferId);
+                            if (chunkMemoryBudget != null) {
+                                chunkMemoryBudget.release(bufferedParts * partBytes);
+                            }
+                        }
+                    }
 
+                    if (streamChecksum != null) {
+                        streamChecksum.verify();
+                    }
+                    inConnector.complete();
+                    outConnector.complete();
+                    logger.info("Completed split streaming transfer for transfer {}", transferId);
 
-                        completionService.submit(new ChunkMover(inConnector,
-                                outConnector, uploadLength, endPos, chunkIdx,
-                                transferId, doChunkStreaming));
+                } catch (Exception e) {
+                    inConnector.failed();
+                    outConnector.failed();
+                    throw e;
+                }
+            } else if (mode == TransferPlanner.Mode.REASSEMBLE) {
+
+                logger.info("Starting reassembled streaming transfer for transfer {}", transferId);
+
+                long fileLength = srcCC.getMetadata().getResourceSize();
+                // Ranges are buffered in memory until they are written so they are not grown beyond the chunk size
+                ChunkSizer chunkSizer = new ChunkSizer(fileLength,
+                        chunkedSize * 1024 * 1024L,
+                        chunkedSize * 1024 * 1024L,
+                        0,
+                        ConnectorCapabilities.DEFAULT);
+
+                IncomingChunkedConnector inConnector = inChunkedConnectorOp.get();
+                OutgoingStreamingConnector outConnector = outStreamingConnectorOp.get();
+
+                inConnector.init(srcCC);
+                outConnector.init(dstCC);
 
-                        uploadLength = endPos;
-                        chunkIdx++;
+                TransferRun run = new TransferRun(transferId, route, chunkSizer, movedBytes,
+                        shapingFor(transferId, request, inConnector, outConnector),
+                        endpointLimiters.forEndpoints(storageKeys(request, inConnector, outConnector)), null);
+
+                try {
+                    String dstChild = request.getDestinationChildResourcePath();
+                    OutputStream outputStream = dstChild.equals("") ? outConnector.fetchOutputStream() : outConnector.fetchOutputStream(dstChild);
+                    StreamChecksum streamChecksum = null;
+                    if (checksumEnabled) {
+                        streamChecksum = new StreamChecksum(srcCC.getMetadata().getMd5sum());
+                        outputStream = streamChecksum.wrap(outputStream);
+                        checksum = streamChecksum;
                     }
 
+                    Iterator<OrderedRangeStreamer.Range> ranges = new Iterator<OrderedRangeStreamer.Range>() {
+                        long position = 0L;
+                        int chunkIdx = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return position < fileLength;
+                        }
+
+                        @Override
+                        public OrderedRangeStreamer.Range next() {
+                            long endPos = position + chunkSizer.nextChunkSize(position, chunkIdx);
+                            RangeFetcher fetcher = new RangeFetcher(inConnector, position, endPos, chunkIdx, run);
+                            position = endPos;
+                            chunkIdx++;
+                            return new OrderedRangeStreamer.Range(fetcher.endPos - fetcher.startPos, cancelled -> {
+                                fetcher.newAttempt(cancelled).call();
+                                return fetcher.data;
+                            });
+                        }
+                    };
 
-                    for (int i = 0; i < chunkIdx; i++) {
-                        Future<Integer> future = completionService.take();
+                    // Fetched ranges are held in the heap until they are written, so the read ahead is reserved in ranges
+                    long rangeBytes = chunkSizer.getMaxChunkSize();
+                    int readAheadRanges = (int) Math.max(1, readAheadSize * 1024 * 1024L / rangeBytes);
+                    if (chunkMemoryBudget != null) {
+                        readAheadRanges = chunkMemoryBudget.reserveUnits(readAheadRanges, rangeBytes);
+                    }
+                    Executor transferExecutor = chunkedExecutorService.forTransfer(transferId, request.getWeight());
+                    try {
+                        long written = new OrderedRangeStreamer(transferExecutor, readAheadRanges * rangeBytes,
+                                movedBytes, retryPolicy, chunkRetries).run(ranges, outputStream);
+                        logger.info("Streamed {} bytes of fetched ranges for transfer {}", written, transferId);
+                    } finally {
+                        chunkedExecutorService.release(transferId);
+                        if (chunkMemoryBudget != null) {
+                            chunkMemoryBudget.release(readAheadRanges * rangeBytes);
+                        }
                     }
 
+                    if (streamChecksum != null) {
+                        streamChecksum.verify();
+                    }
                     inConnector.complete();
                     outConnector.complete();
-                    logger.info("Completed chunked transfer for transfer {}", transferId);
+                    logger.info("Completed reassembled streaming transfer for transfer {}", transferId);
 
                 } catch (Exception e) {
                     inConnector.failed();
                     outConnector.failed();
                     throw e;
                 }
-            } else if (inStreamingConnectorOp.isPresent() && outStreamingConnectorOp.isPresent()) {
+            } else {
 
-                logger.info("Starting streaming transfer for transfer {}", transferId);
+                logger.info("Starting {} streaming transfer for transfer {}",
+                        mode == TransferPlanner.Mode.SINGLE_SHOT ? "single shot" : "pipelined", transferId);
                 IncomingStreamingConnector inConnector = inStreamingConnectorOp
                         .orElseThrow(() -> new Exception("Could not find an in streaming connector for type " + request.getSourceType()));
 
@@ -160,57 +590,93 @@ public class TransportMediator {
                 inConnector.init(srcCC);
                 outConnector.init(dstCC);
 
+                BandwidthShaper.TransferShaping shaping = shapingFor(transferId, request, inConnector, outConnector);
+
+                // The streams hold a slot of each endpoint for the whole transfer
+                List<EndpointLimiter> limiters = endpointLimiters.forEndpoints(
+                        storageKeys(request, inConnector, outConnector));
+                int acquiredLimiters = 0;
+                Exception streamError = null;
                 try {
+                    for (EndpointLimiter limiter : limiters) {
+                        limiter.acquireStream();
+                        acquiredLimiters++;
+                    }
+
                     String srcChild = request.getSourceChildResourcePath();
                     String dstChild = request.getDestinationChildResourcePath();
 
-                    InputStream inputStream = srcChild.equals("") ? inConnector.fetchInputStream() : inConnector.fetchInputStream(srcChild);
-                    OutputStream outputStream = dstChild.equals("") ? outConnector.fetchOutputStream() : outConnector.fetchOutputStream(dstChild);
+                    StreamChecksum streamChecksum = null;
+                    if (checksumEnabled) {
+                        streamChecksum = new StreamChecksum(srcCC.getMetadata().getMd5sum());
+                        checksum = streamChecksum;
+                    }
 
-                    long count = 0;
-                    final AtomicLong countAtomic = new AtomicLong();
-                    countAtomic.set(count);
+                    int copySize = BufferPool.getDefault().getCopySize(request.getSourceType());
+                    long streamStart = System.nanoTime();
+                    long written;
+                    if (mode == TransferPlanner.Mode.STREAMING && inConnector instanceof IncomingChannelConnector
+                            && outConnector instanceof OutgoingChannelConnector) {
+                        logger.info("Copying through channels for transfer {}", transferId);
+                        IncomingChannelConnector inChannelConnector = (IncomingChannelConnector) inConnector;
+                        OutgoingChannelConnector outChannelConnector = (OutgoingChannelConnector) outConnector;
+                        ReadableByteChannel readableChannel = srcChild.equals("") ?
+                                inChannelConnector.fetchReadableChannel() : inChannelConnector.fetchReadableChannel(srcChild);
+                        WritableByteChannel writableChannel = dstChild.equals("") ?
+                                outChannelConnector.fetchWritableChannel() : outChannelConnector.fetchWritableChannel(dstChild);
+                        StreamChecksum channelChecksum = streamChecksum;
+                        written = new ChannelCopier(copySize).copy(readableChannel, writableChannel,
+                                channelChecksum != null, (data, bytes) -> {
+                                    shaping.acquire(bytes);
+                                    if (channelChecksum != null) {
+                                        channelChecksum.update(data);
+                                    }
+                                    movedBytes.addAndGet(bytes);
+                                });
+                    } else {
+                        InputStream inputStream = srcChild.equals("") ? inConnector.fetchInputStream() : inConnector.fetchInputStream(srcChild);
 
-                    monitorPool.submit(() -> {
-                        while (true) {
-                            try {
-                                Thread.sleep(2000);
-                            } catch (InterruptedException e) {
-                                // Ignore
-                            }
-                            if (!transferInProgress.get()) {
-                                logger.info("Status monitor is exiting for transfer {}", transferId);
-                                break;
+                        // Shaping and the checksum are applied by the reader thread, in the order of the file
+                        InputStream source = shaping.wrap(inputStream);
+                        if (streamChecksum != null) {
+                            source = streamChecksum.wrap(source);
+                        }
+                        if (mode == TransferPlanner.Mode.SINGLE_SHOT) {
+                            long fileLength = srcCC.getMetadata().getResourceSize();
+                            SingleShotOutgoingConnector singleShotConnector = (SingleShotOutgoingConnector) outConnector;
+                            if (dstChild.equals("")) {
+                                singleShotConnector.uploadObject(source, fileLength);
+                            } else {
+                                singleShotConnector.uploadObject(dstChild, source, fileLength);
                             }
-                            double transferPercentage = countAtomic.get() * 100.0 / srcCC.getMetadata().getResourceSize();
-                            logger.info("Transfer percentage for transfer {} {}", transferId, transferPercentage);
-                            onStatusCallback.accept(transferId, new TransferState()
-                                    .setPercentage(transferPercentage)
-                                    .setState("RUNNING")
-                                    .setUpdateTimeMils(System.currentTimeMillis())
-                                    .setDescription("Transfer Progress Updated"));
+                            written = fileLength;
+                            movedBytes.addAndGet(fileLength);
+                        } else {
+                            OutputStream outputStream = dstChild.equals("") ? outConnector.fetchOutputStream() : outConnector.fetchOutputStream(dstChild);
+                            written = new StreamPipeline(streamThreadFactory, readAheadSize * 1024 * 1024L)
+                                    .run(source, outputStream, copySize, movedBytes::addAndGet);
                         }
-                    });
-
-                    int n;
-                    byte[] buffer = new byte[128 * 1024];
-                    for (count = 0L; -1 != (n = inputStream.read(buffer)); count += (long) n) {
-                        outputStream.write(buffer, 0, n);
-                        countAtomic.set(count);
                     }
+                    transferPlanner.recordMove(route, written, System.nanoTime() - streamStart);
+                    logger.info("Streamed {} bytes for transfer {}", written, transferId);
 
+                    if (streamChecksum != null) {
+                        streamChecksum.verify();
+                    }
                     inConnector.complete();
                     outConnector.complete();
 
                     logger.info("Completed streaming transfer for transfer {}", transferId);
                 } catch (Exception e) {
+                    streamError = e;
                     inConnector.failed();
                     outConnector.failed();
                     throw e;
+                } finally {
+                    for (int i = 0; i < acquiredLimiters; i++) {
+                        limiters.get(i).releaseStream(streamError);
+                    }
                 }
-
-            } else {
-                throw new Exception("No matching connector found to perform the transfer");
             }
 
             long endTime = System.currentTimeMillis();
@@ -220,71 +686,492 @@ public class TransportMediator {
             logger.info("Transfer {} completed. Time {} S.  Speed {} MB/s", transferId, time,
                     (srcCC.getMetadata().getResourceSize() * 1.0 / time) / (1024 * 1024));
 
-            onStatusCallback.accept(transferId, new TransferState()
+            TransferState completedState = new TransferState()
                     .setPercentage(100)
                     .setState("COMPLETED")
+                    .setChunkRetries(chunkRetries.get())
                     .setUpdateTimeMils(endTime)
-                    .setDescription("Transfer successfully completed"));
-
-            exitingCallback.accept(transferId, true);
+                    .setDescription("Transfer successfully completed");
+            finalState = checksum != null ? checksum.applyTo(completedState) : completedState;
+            succeeded = true;
         } catch (Exception e) {
 
             logger.error("Transfer {} failed with error", transferId, e);
 
-            onStatusCallback.accept(transferId, new TransferState()
+            TransferState failedState = new TransferState()
                     .setPercentage(0)
                     .setState("FAILED")
+                    .setChunkRetries(chunkRetries.get())
                     .setUpdateTimeMils(System.currentTimeMillis())
-                    .setDescription("Transfer failed due to " + ExceptionUtils.getStackTrace(e)));
-            exitingCallback.accept(transferId, false);
+                    .setDescription("Transfer failed due to " + ExceptionUtils.getStackTrace(e));
+            finalState = checksum != null ? checksum.applyTo(failedState) : failedState;
         } finally {
-            transferInProgress.set(false);
+            // Unregistered before the final state is published so no progress report can follow it
+            progressReporter.unregister(transferId);
+            bandwidthShaper.release(transferId);
+            if (finalState != null) {
+                onStatusCallback.accept(transferId, finalState);
+                exitingCallback.accept(transferId, succeeded);
+            }
+        }
+
+    }
+
+    private BandwidthShaper.TransferShaping shapingFor(String transferId, TransferApiRequest request,
+                                                       BasicConnector inConnector, BasicConnector outConnector) {
+        return bandwidthShaper.forTransfer(transferId, storageKeys(request, inConnector, outConnector));
+    }
+
+    /*
+    Number of chunks of a transfer in flight, capped by the concurrency preferred by the storages the chunks are
+    requested from. Parts that must arrive in order are moved one at a time
+     */
+    private int chunkWindowFor(BasicConnector... chunkedConnectors) {
+        return chunkWindowFor(chunkWindowSize, chunkedConnectors);
+    }
+
+    private int chunkWindowFor(int window, BasicConnector... chunkedConnectors) {
+        for (BasicConnector connector : chunkedConnectors) {
+            ConnectorCapabilities capabilities = connector.getCapabilities();
+            if (capabilities.isOrderedParts()) {
+                return 1;
+            }
+            if (capabilities.getPreferredConcurrency() > 0) {
+                window = Math.min(window, capabilities.getPreferredConcurrency());
+            }
+        }
+        return window;
+    }
+
+    private static String[] storageKeys(TransferApiRequest request, BasicConnector inConnector,
+                                        BasicConnector outConnector) {
+        return new String[]{
+                BandwidthShaper.storageKey(request.getSourceType(),
+                        inConnector.getStorageId().orElse(request.getSourceResourceId())),
+                BandwidthShaper.storageKey(request.getDestinationType(),
+                        outConnector.getStorageId().orElse(request.getDestinationResourceId()))};
+    }
+
+    /*
+    Opens the chunk journal of the transfer and continues the upload session recorded in it, if there is any
+     */
+    private ChunkJournal openJournal(String transferId, ConnectorConfig srcCC,
+                                     ResumableOutgoingChunkedConnector outConnector) throws Exception {
+
+        FileResourceMetadata metadata = srcCC.getMetadata();
+        ChunkJournal journal = ChunkJournal.open(journalDir, transferId, metadata.getResourceSize(),
+                metadata.getMd5sum() + ":" + metadata.getUpdateTime());
+
+        String journaledSession = journal.getUploadSessionId();
+        if (journaledSession != null) {
+            List<UploadedChunk> uploadedChunks = journal.getUploadedChunks();
+            if (outConnector.resumeUploadSession(journaledSession, uploadedChunks)) {
+                logger.info("Resuming transfer {} with {} already uploaded chunks", transferId, uploadedChunks.size());
+            } else {
+                logger.info("Upload session of transfer {} can not be resumed. Starting from the beginning", transferId);
+                journal.reset();
+            }
         }
 
+        String uploadSessionId = outConnector.getUploadSessionId();
+        if (!uploadSessionId.equals(journal.getUploadSessionId())) {
+            journal.recordUploadSession(uploadSessionId);
+        }
+        return journal;
     }
 
     public void destroy() {
-        monitorPool.shutdown();
+        progressReporter.shutdown();
+        chunkedExecutorService.shutdown();
+        asyncEventLoop.shutdownNow();
+        journalWriter.shutdown();
     }
 
-    private class ChunkMover implements Callable<Integer> {
+    /*
+    State shared by the chunk tasks of a single transfer
+     */
+    private static class TransferRun {
+
+        final String transferId;
+        // Storage types the chunks are moved between, as keyed by the transfer planner
+        final String route;
+        final ChunkSizer chunkSizer;
+        final AtomicLong movedBytes;
+        final BandwidthShaper.TransferShaping shaping;
+        final List<EndpointLimiter> endpointLimiters;
+        // Null if the chunks of the transfer are not checksummed
+        final ChunkedChecksum checksum;
+
+        TransferRun(String transferId, String route, ChunkSizer chunkSizer, AtomicLong movedBytes,
+                    BandwidthShaper.TransferShaping shaping, List<EndpointLimiter> endpointLimiters,
+                    ChunkedChecksum checksum) {
+            this.transferId = transferId;
+            this.route = route;
+            this.chunkSizer = chunkSizer;
+            this.movedBytes = movedBytes;
+            this.shaping = shaping;
+            this.endpointLimiters = endpointLimiters;
+            this.checksum = checksum;
+        }
+    }
+
+    /*
+    A chunk of a transfer, retried by its scheduler when an attempt fails. Subclasses define how the bytes of the chunk are moved
+     */
+    private abstract class ChunkTask implements Callable<Integer>, WindowedChunkScheduler.AdmittedChunk {
 
-        IncomingChunkedConnector downloader;
-        OutgoingChunkedConnector uploader;
         long startPos;
         long endPos;
         int chunkIdx;
-        String transferId;
-        boolean useStreaming;
+        TransferRun run;
 
-        public ChunkMover(IncomingChunkedConnector downloader, OutgoingChunkedConnector uploader, long startPos,
-                          long endPos, int chunkIdx, String transferId, boolean useStreaming) {
-            this.downloader = downloader;
-            this.uploader = uploader;
+        // A chunk may be moved by a speculative attempt as well. Only the first attempt to finish accounts the chunk
+        final AtomicBoolean completed = new AtomicBoolean(false);
+
+        // Whether the endpoint permits of the chunk were acquired by the scheduler and not yet taken by an attempt
+        final AtomicBoolean admitted = new AtomicBoolean(false);
+
+        ChunkTask(long startPos, long endPos, int chunkIdx, TransferRun run) {
             this.startPos = startPos;
             this.endPos = endPos;
             this.chunkIdx = chunkIdx;
-            this.transferId = transferId;
-            this.useStreaming = useStreaming;
+            this.run = run;
         }
 
         @Override
         public Integer call() throws Exception {
+            return attempt(() -> false);
+        }
+
+        /*
+        A separate attempt for the speculative scheduling of the chunk. See WindowedChunkScheduler.SpeculativeChunk
+         */
+        public Callable<Integer> newAttempt(BooleanSupplier cancelled) {
+            return () -> attempt(cancelled);
+        }
+
+        /*
+        Moves the chunk once. Failed attempts are retried by the scheduler after the backoff, so no worker shared with
+        other transfers sleeps through it
+         */
+        private Integer attempt(BooleanSupplier cancelled) throws Exception {
+            checkCancelled(cancelled);
+            long chunkStart = System.currentTimeMillis();
             try {
-                if (useStreaming) {
-                    InputStream inputStream = downloader.downloadChunk(chunkIdx, startPos, endPos);
-                    uploader.uploadChunk(chunkIdx, startPos, endPos, inputStream);
-                } else {
-                    String tempFile = tempDataDir + File.separator + transferId + "-" + chunkIdx;
-                    downloader.downloadChunk(chunkIdx, startPos, endPos, tempFile);
-                    uploader.uploadChunk(chunkIdx, startPos, endPos, tempFile);
-                    new File(tempFile).delete();
+                moveChunkWithinEndpointLimits(cancelled);
+                if (!completed.compareAndSet(false, true)) {
+                    return chunkIdx;
                 }
+                run.chunkSizer.recordChunk(endPos - startPos, System.currentTimeMillis() - chunkStart);
+                recordProgress(endPos - startPos);
+                onChunkCompleted();
                 return chunkIdx;
             } catch (Exception e) {
-                logger.error("Failed to transfer ", e);
+                checkCancelled(cancelled);
+                throw e;
+            }
+        }
+
+        void checkCancelled(BooleanSupplier cancelled) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Attempt of chunk " + chunkIdx + " of transfer " + run.transferId +
+                        " was cancelled");
+            }
+        }
+
+        /*
+        Acquires the endpoint permits of the first attempt on the scheduling thread, so a queued chunk does not hold a
+        worker while it waits for its endpoints
+         */
+        @Override
+        public void admit() throws InterruptedException {
+            int acquired = 0;
+            try {
+                for (EndpointLimiter limiter : run.endpointLimiters) {
+                    limiter.acquire();
+                    acquired++;
+                }
+            } catch (InterruptedException e) {
+                releaseEndpoints(acquired, 0, 0, null);
                 throw e;
             }
+            admitted.set(true);
+        }
+
+        @Override
+        public void withdraw() {
+            if (admitted.getAndSet(false)) {
+                releaseEndpoints(run.endpointLimiters.size(), 0, 0, null);
+            }
+        }
+
+        private void moveChunkWithinEndpointLimits(BooleanSupplier cancelled) throws Exception {
+            int acquired = 0;
+            long start = System.nanoTime();
+            long shapingStart = BandwidthShaper.TransferShaping.getWaitedNanos();
+            long bytes = 0;
+            Exception error = null;
+            try {
+                if (admitted.getAndSet(false)) {
+                    acquired = run.endpointLimiters.size();
+                } else {
+                    // Retries and speculative attempts wait for their endpoints on the worker
+                    for (EndpointLimiter limiter : run.endpointLimiters) {
+                        limiter.acquire();
+                        acquired++;
+                    }
+                }
+                start = System.nanoTime();
+                shapingStart = BandwidthShaper.TransferShaping.getWaitedNanos();
+                moveChunk(cancelled);
+                bytes = endPos - startPos;
+                transferPlanner.recordMove(run.route, bytes, System.nanoTime() - start);
+            } catch (Exception e) {
+                error = e;
+                throw e;
+            } finally {
+                // Waits for bandwidth are left out so shaping is not taken as congestion of the endpoint
+                long shapingWait = BandwidthShaper.TransferShaping.getWaitedNanos() - shapingStart;
+                long elapsed = System.nanoTime() - start - shapingWait;
+                releaseEndpoints(acquired, bytes, elapsed, error);
+            }
+        }
+
+        private void releaseEndpoints(int acquired, long bytes, long nanos, Throwable error) {
+            for (int i = 0; i < acquired; i++) {
+                run.endpointLimiters.get(i).release(bytes, nanos, error);
+            }
+        }
+
+        /*
+        Moves the bytes of the chunk. Should stop between its steps once cancelled
+         */
+        abstract void moveChunk(BooleanSupplier cancelled) throws Exception;
+
+        void recordProgress(long bytes) {
+            run.movedBytes.addAndGet(bytes);
+        }
+
+        void onChunkCompleted() throws Exception {
+        }
+    }
+
+    private class ChunkMover extends ChunkTask implements AsyncChunkScheduler.AsyncChunk,
+            WindowedChunkScheduler.SpeculativeChunk {
+
+        IncomingChunkedConnector downloader;
+        OutgoingChunkedConnector uploader;
+        StagingManager.TransferStaging staging;
+        ChunkJournal journal;
+
+        /*
+        Staging of the transfer. Null if chunks are always streamed from the downloader to the uploader
+         */
+        public ChunkMover(IncomingChunkedConnector downloader, OutgoingChunkedConnector uploader, long startPos,
+                          long endPos, int chunkIdx, TransferRun run, StagingManager.TransferStaging staging,
+                          ChunkJournal journal) {
+            super(startPos, endPos, chunkIdx, run);
+            this.downloader = downloader;
+            this.uploader = uploader;
+            this.staging = staging;
+            this.journal = journal;
+        }
+
+        @Override
+        void onChunkCompleted() throws Exception {
+            if (journal != null) {
+                journal.recordCompletion(chunkIdx, ((ResumableOutgoingChunkedConnector) uploader).getChunkTag(chunkIdx));
+            }
+        }
+
+        @Override
+        void moveChunk(BooleanSupplier cancelled) throws Exception {
+            ChunkedChecksum.ChunkDigest digest = run.checksum != null ? run.checksum.newDigest() : null;
+            long size = endPos - startPos;
+            if (downloader instanceof PositionalIncomingConnector && uploader instanceof PositionalOutgoingConnector) {
+                // Moved slice by slice through a direct buffer, so the chunk is neither staged nor held in memory
+                new ChannelCopier(BufferPool.getDefault().getCopySize(null)).copyRange(
+                        (PositionalIncomingConnector) downloader, (PositionalOutgoingConnector) uploader, startPos,
+                        endPos, (data, bytes) -> {
+                            checkCancelled(cancelled);
+                            run.shaping.acquire(bytes);
+                            if (digest != null) {
+                                digest.update(data);
+                            }
+                        });
+            } else if (staging == null) {
+                streamChunk(digest, cancelled);
+            } else if (doChunkStreaming && chunkMemoryBudget.tryReserve(size)) {
+                // Connectors may buffer the whole chunk in memory while streaming it
+                try {
+                    streamChunk(digest, cancelled);
+                } finally {
+                    chunkMemoryBudget.release(size);
+                }
+            } else {
+                if (doChunkStreaming) {
+                    logger.debug("Memory budget of streamed chunks is exhausted. Staging chunk {} of transfer {}",
+                            chunkIdx, run.transferId);
+                }
+                try (StagingManager.Slot slot = staging.acquire()) {
+                    try (InputStream inputStream = download(digest, cancelled);
+                         OutputStream outputStream = slot.outputStream()) {
+                        long staged = BufferPool.getDefault().copy(inputStream, outputStream, endPos - startPos, null);
+                        if (staged != endPos - startPos) {
+                            throw new EOFException("Staged " + staged + " bytes of chunk " + chunkIdx + " of " +
+                                    (endPos - startPos) + " bytes");
+                        }
+                    }
+                    checkCancelled(cancelled);
+                    try (InputStream inputStream = slot.inputStream(endPos - startPos)) {
+                        uploader.uploadChunk(chunkIdx, startPos, endPos, inputStream);
+                    }
+                }
+            }
+            if (digest != null) {
+                run.checksum.record(chunkIdx, digest);
+            }
+        }
+
+        @Override
+        public int getChunkIdx() {
+            return chunkIdx;
+        }
+
+        /*
+        Moves the chunk through non blocking connectors. The uploader pulls the bytes of the download at its own pace
+        and the bandwidth shaping delays the pulls on the event loop instead of blocking a thread. Endpoint limiters
+        block while waiting for a permit so they are not applied to these chunks
+         */
+        @Override
+        public CompletableFuture<Void> start() {
+            ChunkedChecksum.ChunkDigest digest = run.checksum != null ? run.checksum.newDigest() : null;
+            long chunkStart = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            return ((AsyncIncomingChunkedConnector) downloader).downloadChunkAsync(chunkIdx, startPos, endPos)
+                    .thenCompose(data -> ((AsyncOutgoingChunkedConnector) uploader).uploadChunkAsync(chunkIdx,
+                            startPos, endPos, new ShapedPublisher(data, asyncEventLoop, buffer -> {
+                                if (digest != null) {
+                                    digest.update(buffer);
+                                }
+                                return run.shaping.reserve(buffer.remaining());
+                            })))
+                    .thenCompose(v -> {
+                        try {
+                            long size = endPos - startPos;
+                            transferPlanner.recordMove(run.route, size, System.nanoTime() - startNanos);
+                            run.chunkSizer.recordChunk(size, System.currentTimeMillis() - chunkStart);
+                            if (digest != null) {
+                                run.checksum.record(chunkIdx, digest);
+                            }
+                            if (!completed.compareAndSet(false, true)) {
+                                return CompletableFuture.<Void>completedFuture(null);
+                            }
+                            run.movedBytes.addAndGet(size);
+                            if (journal == null) {
+                                return CompletableFuture.<Void>completedFuture(null);
+                            }
+                            return CompletableFuture.runAsync(() -> {
+                                try {
+                                    onChunkCompleted();
+                                } catch (Exception e) {
+                                    throw new CompletionException(e);
+                                }
+                            }, journalWriter);
+                        } catch (Exception e) {
+                            return CompletableFuture.failedFuture(e);
+                        }
+                    });
+        }
+
+        private void streamChunk(ChunkedChecksum.ChunkDigest digest, BooleanSupplier cancelled) throws Exception {
+            try (InputStream inputStream = download(digest, cancelled)) {
+                uploader.uploadChunk(chunkIdx, startPos, endPos, inputStream);
+            }
+        }
+
+        private InputStream download(ChunkedChecksum.ChunkDigest digest, BooleanSupplier cancelled) throws Exception {
+            InputStream inputStream = run.shaping.wrap(downloader.downloadChunk(chunkIdx, startPos, endPos));
+            inputStream = digest != null ? digest.wrap(inputStream) : inputStream;
+            return new FilterInputStream(inputStream) {
+                // Stops the copy of a cancelled attempt at the next read without interrupting the thread
+                @Override
+                public int read() throws IOException {
+                    checkCancelledRead();
+                    return super.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    checkCancelledRead();
+                    return super.read(b, off, len);
+                }
+
+                private void checkCancelledRead() throws IOException {
+                    if (cancelled.getAsBoolean()) {
+                        throw new IOException("Attempt of chunk " + chunkIdx + " of transfer " + run.transferId +
+                                " was cancelled");
+                    }
+                }
+            };
+        }
+    }
+
+    /*
+    Uploads a part cut from a streaming source. The part is kept in memory until it is uploaded so it can be retried.
+    The data is only read, so speculative attempts of the part can share it
+     */
+    private class PartUploader extends ChunkTask implements WindowedChunkScheduler.SpeculativeChunk {
+
+        final OutgoingChunkedConnector uploader;
+        final byte[] data;
+
+        public PartUploader(OutgoingChunkedConnector uploader, StreamSplitter.Part part, TransferRun run) {
+            super(part.getStartByte(), part.getEndByte(), part.getPartIdx(), run);
+            this.uploader = uploader;
+            this.data = part.getData();
+        }
+
+        @Override
+        void moveChunk(BooleanSupplier cancelled) throws Exception {
+            uploader.uploadChunk(chunkIdx, startPos, endPos, new ByteArrayInputStream(data));
+        }
+    }
+
+    /*
+    Downloads a range of a chunked source into memory so it can be written to a streaming destination in order
+     */
+    private class RangeFetcher extends ChunkTask {
+
+        IncomingChunkedConnector downloader;
+        byte[] data;
+
+        public RangeFetcher(IncomingChunkedConnector downloader, long startPos, long endPos, int chunkIdx,
+                            TransferRun run) {
+            super(startPos, endPos, chunkIdx, run);
+            this.downloader = downloader;
+        }
+
+        @Override
+        void moveChunk(BooleanSupplier cancelled) throws Exception {
+            byte[] buffer = new byte[(int) (endPos - startPos)];
+            try (InputStream inputStream = run.shaping.wrap(downloader.downloadChunk(chunkIdx, startPos, endPos))) {
+                int read = 0;
+                while (read < buffer.length) {
+                    checkCancelled(cancelled);
+                    int n = inputStream.read(buffer, read, buffer.length - read);
+                    if (n == -1) {
+                        throw new EOFException("Chunk " + chunkIdx + " ended after " + read + " of " + buffer.length + " bytes");
+                    }
+                    read += n;
+                }
+            }
+            data = buffer;
+        }
+
+        @Override
+        void recordProgress(long bytes) {
+            // Counted by the streamer once the range is written to the destination
         }
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Access to the virtual threads of JDK 21 and later. The agent is compiled for an older release, so the JDK API is
+ * looked up reflectively and callers fall back to platform threads when it is not available.
+ */
+public final class VirtualThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param namePrefix prefix of the thread names. A sequence number is appended to it
+     * @return a factory creating virtual threads or empty if the running JDK does not support them
+     */
+    public static Optional<ThreadFactory> factory(String namePrefix) {
+        try {
+            // Methods are resolved through the public Thread.Builder interface as the builder class is internal
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return Optional.empty();
+        } catch (Exception e) {
+            logger.warn("Failed to create a virtual thread factory", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Creates an executor that starts a new thread for every task but runs at most the given number of tasks at a
+     * time. Tasks over the limit wait on a semaphore inside their own thread, which is cheap for virtual threads.
+     *
+     * @param threadFactory factory of the per task threads
+     * @param maxConcurrency maximum number of tasks running at a time
+     * @return the executor
+     */
+    public static ExecutorService newBoundedExecutor(ThreadFactory threadFactory, int maxConcurrency) {
+        return new SemaphoreBoundedExecutor(threadFactory, maxConcurrency);
+    }
+
+    private static class SemaphoreBoundedExecutor extends AbstractExecutorService {
+
+        private final ThreadFactory threadFactory;
+        private final Semaphore permits;
+        private final Phaser running = new Phaser(1);
+        private volatile boolean shutdown = false;
+
+        private SemaphoreBoundedExecutor(ThreadFactory threadFactory, int maxConcurrency) {
+            this.threadFactory = threadFactory;
+            this.permits = new Semaphore(Math.max(maxConcurrency, 1), true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            synchronized (this) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("Executor is shut down");
+                }
+                running.register();
+            }
+            Thread thread = threadFactory.newThread(() -> {
+                try {
+                    permits.acquire();
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.arriveAndDeregister();
+                }
+            });
+            thread.start();
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            if (!shutdown) {
+                shutdown = true;
+                running.arriveAndDeregister();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown();
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && running.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            if (!shutdown) {
+                return false;
+            }
+            try {
+                running.awaitAdvanceInterruptibly(0, timeout, unit);
+                return true;
+            } catch (TimeoutException e) {
+                return running.isTerminated();
+            }
+        }
+    }
+}
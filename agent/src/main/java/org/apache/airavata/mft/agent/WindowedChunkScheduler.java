@@ -0,0 +1,399 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * Feeds the chunks of a single transfer into its chunk executor while keeping at most windowSize chunks in
+ * flight. Chunks are pulled lazily from the iterator and the next one is only released once an earlier one completes,
+ * so queued tasks and futures stay bounded regardless of the file size. The first failed chunk stops further
+ * submissions and cancels the chunks that are still pending.
+ *
+ * When speculation is enabled, a {@link SpeculativeChunk} running longer than a multiple of the median chunk latency is
+ * started again if some workers are idle. The first attempt to complete wins and the other one is cancelled. Attempts
+ * are never interrupted, since an interrupt closes the channels the attempts of a transfer share. They are cancelled
+ * through a flag they check between their steps instead, and run() only returns once every cancelled attempt that
+ * already started has stopped.
+ *
+ * An {@link AdmittedChunk} is admitted on the calling thread before it is queued, so chunks waiting for what they need
+ * to run do not hold the workers shared with other transfers. For the same reason a failed chunk does not wait for its
+ * retry backoff on a worker. The calling thread submits it again once the backoff has passed and the chunk keeps its
+ * place in the window meanwhile.
+ */
+public class WindowedChunkScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(WindowedChunkScheduler.class);
+
+    /*
+    Number of completed chunks required before the median latency is trusted for speculation
+     */
+    private static final int MIN_LATENCY_SAMPLES = 5;
+    private static final int LATENCY_SAMPLES = 256;
+    private static final long STRAGGLER_CHECK_MILLIS = 100;
+
+    private final Executor executor;
+    private final int windowSize;
+    private final double speculationMultiplier;
+    private final IntSupplier idleWorkers;
+    private final ChunkRetryPolicy retryPolicy;
+    private final AtomicInteger chunkRetries;
+
+    private final LatencyPercentiles latencies = new LatencyPercentiles(LATENCY_SAMPLES);
+
+    public WindowedChunkScheduler(Executor executor, int windowSize) {
+        this(executor, windowSize, 0, () -> 0, null, null);
+    }
+
+    /**
+     * @param executor executor of the chunks of the transfer
+     * @param windowSize maximum number of chunks in flight
+     * @param speculationMultiplier a chunk is speculatively started again when it runs longer than this multiple of
+     *                              the median chunk latency. Speculation is disabled if this is not positive
+     * @param idleWorkers number of workers of the executor that are currently idle
+     * @param retryPolicy decides whether and when a failed chunk is retried. Failed chunks are not retried if null
+     * @param chunkRetries counter of the retries of the transfer
+     */
+    public WindowedChunkScheduler(Executor executor, int windowSize, double speculationMultiplier,
+                                  IntSupplier idleWorkers, ChunkRetryPolicy retryPolicy, AtomicInteger chunkRetries) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Chunk window size should be at least 1 but was " + windowSize);
+        }
+        this.executor = executor;
+        this.windowSize = windowSize;
+        this.speculationMultiplier = speculationMultiplier;
+        this.idleWorkers = idleWorkers;
+        this.retryPolicy = retryPolicy;
+        this.chunkRetries = chunkRetries;
+    }
+
+    /**
+     * Runs all the chunks provided by the iterator and blocks until every one of them is completed
+     *
+     * @param chunks lazily evaluated chunk tasks of the transfer
+     * @return number of chunks completed
+     * @throws Exception the failure of the first failed chunk
+     */
+    public int run(Iterator<? extends Callable<Integer>> chunks) throws Exception {
+
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<Integer>, Attempt> attempts = new HashMap<>();
+        Set<ChunkRun> inFlight = new LinkedHashSet<>();
+        List<Attempt> cancelled = new ArrayList<>();
+        // Failed chunks waiting for their retry backoff, ordered by the time they are due
+        Queue<ChunkRun> retries = new PriorityQueue<>(Comparator.comparingLong(chunk -> chunk.retryAtNanos));
+        int completed = 0;
+        int chunkIdx = 0;
+
+        try {
+            while (chunks.hasNext()) {
+                resubmitDue(completionService, attempts, retries);
+                if (inFlight.size() >= windowSize) {
+                    if (awaitNext(completionService, attempts, inFlight, cancelled, retries)) {
+                        completed++;
+                    }
+                    continue;
+                }
+                ChunkRun chunk = new ChunkRun(chunks.next(), chunkIdx++);
+                if (chunk.task instanceof AdmittedChunk) {
+                    ((AdmittedChunk) chunk.task).admit();
+                }
+                inFlight.add(chunk);
+                submit(completionService, attempts, chunk);
+            }
+
+            while (!inFlight.isEmpty()) {
+                if (awaitNext(completionService, attempts, inFlight, cancelled, retries)) {
+                    completed++;
+                }
+            }
+            return completed;
+
+        } catch (ExecutionException e) {
+            cancelAll(attempts, inFlight, cancelled, retries);
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (Exception e) {
+            cancelAll(attempts, inFlight, cancelled, retries);
+            throw e;
+        } finally {
+            awaitStopped(cancelled);
+        }
+    }
+
+    private void submit(CompletionService<Integer> completionService, Map<Future<Integer>, Attempt> attempts,
+                        ChunkRun chunk) {
+        Attempt attempt = new Attempt(chunk);
+        // Every attempt of a speculative chunk is a separate task with its own state
+        Callable<Integer> body = chunk.task instanceof SpeculativeChunk ?
+                ((SpeculativeChunk) chunk.task).newAttempt(() -> attempt.cancelled) : chunk.task;
+        try {
+            attempt.future = completionService.submit(() -> {
+                attempt.startNanos = System.nanoTime();
+                try {
+                    if (attempt.cancelled) {
+                        throw new CancellationException("Chunk attempt was cancelled before it started");
+                    }
+                    return body.call();
+                } finally {
+                    // Gives back the admission if the attempt did not take it
+                    withdraw(chunk);
+                    attempt.stopped.countDown();
+                }
+            });
+        } catch (RuntimeException e) {
+            withdraw(chunk);
+            throw e;
+        }
+        chunk.attempts.add(attempt);
+        attempts.put(attempt.future, attempt);
+    }
+
+    /*
+    Waits for the next attempt to finish. Returns true if it completed a chunk
+     */
+    private boolean awaitNext(CompletionService<Integer> completionService, Map<Future<Integer>, Attempt> attempts,
+                              Set<ChunkRun> inFlight, List<Attempt> cancelled, Queue<ChunkRun> retries)
+            throws InterruptedException, ExecutionException {
+
+        Future<Integer> future;
+        if (speculationMultiplier > 0 || !retries.isEmpty()) {
+            long waitNanos = speculationMultiplier > 0 ?
+                    TimeUnit.MILLISECONDS.toNanos(STRAGGLER_CHECK_MILLIS) : Long.MAX_VALUE;
+            if (!retries.isEmpty()) {
+                waitNanos = Math.min(waitNanos, Math.max(retries.peek().retryAtNanos - System.nanoTime(), 0));
+            }
+            future = completionService.poll(waitNanos, TimeUnit.NANOSECONDS);
+            if (future == null) {
+                resubmitDue(completionService, attempts, retries);
+                if (speculationMultiplier > 0) {
+                    speculate(completionService, attempts, inFlight);
+                }
+                return false;
+            }
+        } else {
+            future = completionService.take();
+        }
+
+        Attempt attempt = attempts.remove(future);
+        if (attempt == null) {
+            // A cancelled attempt of a chunk that was already completed by another attempt
+            return false;
+        }
+        ChunkRun chunk = attempt.chunk;
+        chunk.attempts.remove(attempt);
+
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (!chunk.attempts.isEmpty()) {
+                logger.warn("An attempt of a speculatively started chunk failed. Waiting for the other attempt", e);
+                return false;
+            }
+            if (scheduleRetry(chunk, e.getCause(), retries)) {
+                return false;
+            }
+            throw e;
+        }
+
+        latencies.record(System.nanoTime() - attempt.startNanos);
+        inFlight.remove(chunk);
+        for (Attempt loser : chunk.attempts) {
+            attempts.remove(loser.future);
+            cancel(loser, cancelled);
+        }
+        chunk.attempts.clear();
+        return true;
+    }
+
+    /*
+    Queues the chunk to be submitted again after the backoff of the retry policy. Returns false if it is out of retries
+     */
+    private boolean scheduleRetry(ChunkRun chunk, Throwable cause, Queue<ChunkRun> retries) {
+        chunk.failedAttempts++;
+        if (retryPolicy == null || cause instanceof CancellationException
+                || !retryPolicy.shouldRetry(chunk.failedAttempts, cause)) {
+            return false;
+        }
+        long backoff = retryPolicy.backoffMillis(chunk.failedAttempts, cause);
+        chunkRetries.incrementAndGet();
+        logger.warn("Chunk {} failed in attempt {}. Retrying in {} ms", chunk.chunkIdx, chunk.failedAttempts, backoff,
+                cause);
+        chunk.retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        retries.add(chunk);
+        return true;
+    }
+
+    private void resubmitDue(CompletionService<Integer> completionService, Map<Future<Integer>, Attempt> attempts,
+                             Queue<ChunkRun> retries) {
+        long now = System.nanoTime();
+        while (!retries.isEmpty() && retries.peek().retryAtNanos - now <= 0) {
+            submit(completionService, attempts, retries.poll());
+        }
+    }
+
+    private void speculate(CompletionService<Integer> completionService, Map<Future<Integer>, Attempt> attempts,
+                           Set<ChunkRun> inFlight) {
+        if (latencies.getCount() < MIN_LATENCY_SAMPLES) {
+            return;
+        }
+        int idle = idleWorkers.getAsInt();
+        if (idle <= 0) {
+            return;
+        }
+
+        long threshold = (long) (latencies.getPercentile(50) * speculationMultiplier);
+        long now = System.nanoTime();
+        List<ChunkRun> stragglers = new ArrayList<>();
+        for (ChunkRun chunk : inFlight) {
+            if (stragglers.size() >= idle) {
+                break;
+            }
+            if (chunk.task instanceof SpeculativeChunk && !chunk.speculated && chunk.attempts.size() == 1) {
+                long startNanos = chunk.attempts.get(0).startNanos;
+                if (startNanos != 0 && now - startNanos > threshold) {
+                    stragglers.add(chunk);
+                }
+            }
+        }
+
+        for (ChunkRun chunk : stragglers) {
+            logger.info("Chunk has been running for {} ms while the median is {} ms. Starting a speculative attempt",
+                    TimeUnit.NANOSECONDS.toMillis(now - chunk.attempts.get(0).startNanos),
+                    TimeUnit.NANOSECONDS.toMillis(latencies.getPercentile(50)));
+            chunk.speculated = true;
+            submit(completionService, attempts, chunk);
+        }
+    }
+
+    private void cancelAll(Map<Future<Integer>, Attempt> attempts, Set<ChunkRun> inFlight, List<Attempt> cancelled,
+                           Queue<ChunkRun> retries) {
+        for (Attempt attempt : attempts.values()) {
+            cancel(attempt, cancelled);
+        }
+        attempts.clear();
+        inFlight.clear();
+        retries.clear();
+    }
+
+    private void cancel(Attempt attempt, List<Attempt> cancelled) {
+        attempt.cancelled = true;
+        if (attempt.future.cancel(false)) {
+            // Never runs, so it can not give back the admission itself
+            withdraw(attempt.chunk);
+        }
+        cancelled.add(attempt);
+    }
+
+    private void withdraw(ChunkRun chunk) {
+        if (chunk.task instanceof AdmittedChunk) {
+            ((AdmittedChunk) chunk.task).withdraw();
+        }
+    }
+
+    /*
+    Waits until the cancelled attempts that started have stopped, so none of them touches the connectors or the staging
+    of the transfer once they are completed or closed
+     */
+    private void awaitStopped(List<Attempt> cancelled) throws InterruptedException {
+        for (Attempt attempt : cancelled) {
+            // Attempts that never started have no start time and never run
+            if (attempt.startNanos != 0) {
+                attempt.stopped.await();
+            }
+        }
+    }
+
+    /**
+     * A chunk that can be attempted more than once at the same time
+     */
+    public interface SpeculativeChunk {
+
+        /**
+         * @param cancelled set once the attempt lost or the transfer failed. The attempt should check it between its
+         *                  steps and give up once it is set
+         * @return a new attempt of the chunk, sharing no retry state with the other attempts
+         */
+        Callable<Integer> newAttempt(BooleanSupplier cancelled);
+    }
+
+    /**
+     * A chunk that acquires what its first attempt needs before it is queued
+     */
+    public interface AdmittedChunk {
+
+        /**
+         * Blocks the calling thread until the chunk can run. Taken over by the first attempt of the chunk
+         */
+        void admit() throws InterruptedException;
+
+        /**
+         * Gives back what {@link #admit()} acquired if no attempt took it over. Called whenever an attempt stops or is
+         * cancelled before it started
+         */
+        void withdraw();
+    }
+
+    private static class ChunkRun {
+
+        private final Callable<Integer> task;
+        private final int chunkIdx;
+        private final List<Attempt> attempts = new ArrayList<>(2);
+        private boolean speculated = false;
+        private int failedAttempts = 0;
+        private long retryAtNanos;
+
+        private ChunkRun(Callable<Integer> task, int chunkIdx) {
+            this.task = task;
+            this.chunkIdx = chunkIdx;
+        }
+    }
+
+    private static class Attempt {
+
+        private final ChunkRun chunk;
+        private Future<Integer> future;
+        // Set by the worker when the attempt starts running. 0 while it is queued
+        private volatile long startNanos = 0;
+        private volatile boolean cancelled = false;
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        private Attempt(ChunkRun chunk) {
+            this.chunk = chunk;
+        }
+    }
+}
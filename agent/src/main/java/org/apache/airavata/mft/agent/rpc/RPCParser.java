@@ -21,6 +21,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.util.JsonFormat;
 import org.apache.airavata.mft.admin.models.rpc.SyncRPCRequest;
 import org.apache.airavata.mft.admin.models.rpc.SyncRPCResponse;
+import org.apache.airavata.mft.agent.BandwidthShaper;
+import org.apache.airavata.mft.agent.EndpointLimiterRegistry;
 import org.apache.airavata.mft.agent.http.AgentHttpDownloadData;
 import org.apache.airavata.mft.agent.http.HttpTransferRequestsStore;
 import org.apache.airavata.mft.common.AuthToken;
@@ -60,6 +62,12 @@ public class RPCParser {
     @Autowired
     private HttpTransferRequestsStore httpTransferRequestsStore;
 
+    @Autowired
+    private BandwidthShaper bandwidthShaper;
+
+    @Autowired
+    private EndpointLimiterRegistry endpointLimiterRegistry;
+
     public String resolveRPCRequest(SyncRPCRequest request) throws Exception {
         // TODO implement using the reflection
         ObjectMapper mapper = new ObjectMapper();
@@ -193,6 +201,36 @@ public class RPCParser {
                     logger.error("Medata collector or connector is not available for store type {}", storeType);
                     throw new Exception("Medata collector or connector is not available for store type " + storeType);
                 }
+
+            case "setBandwidthLimit":
+                // scope is one of agent, storage or transfer. Key is the storage key or the transfer id
+                String scope = request.getParameters().get("scope");
+                String key = request.getParameters().get("key");
+                long bytesPerSecond = Long.parseLong(request.getParameters().get("bytesPerSecond"));
+
+                // A missing scope is reported as an unknown one
+                switch (scope != null ? scope : "") {
+                    case "agent":
+                        bandwidthShaper.setAgentLimit(bytesPerSecond);
+                        break;
+                    case "storage":
+                        bandwidthShaper.setStorageLimit(key, bytesPerSecond);
+                        break;
+                    case "transfer":
+                        bandwidthShaper.setTransferLimit(key, bytesPerSecond);
+                        break;
+                    default:
+                        throw new Exception("Unknown bandwidth limit scope " + scope);
+                }
+                return mapper.writeValueAsString(bytesPerSecond);
+
+            case "setEndpointLimits":
+                // Endpoint is the storage key. 0 means unlimited for both limits
+                String endpoint = request.getParameters().get("endpoint");
+                int maxConcurrency = Integer.parseInt(request.getParameters().get("maxConcurrency"));
+                long requestsPerSecond = Long.parseLong(request.getParameters().get("requestsPerSecond"));
+                endpointLimiterRegistry.setEndpointLimits(endpoint, maxConcurrency, requestsPerSecond);
+                return mapper.writeValueAsString(true);
         }
         logger.error("Unknown method type specified {}", request.getMethod());
         throw new Exception("Unknown method " + request.getMethod());
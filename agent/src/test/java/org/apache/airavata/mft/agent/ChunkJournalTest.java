@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.api.UploadedChunk;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Replays a journal whose last line was torn by a crash and checks that the torn line is dropped, that the chunks
+ * recorded before it are resumed and that the lines appended after the replay are read back
+ */
+public class ChunkJournalTest {
+
+    public static void main(String args[]) throws Exception {
+        Path dir = Files.createTempDirectory("mft-journal-test");
+        String journalDir = dir.toString();
+        Path path = dir.resolve("transfer-1.journal");
+        boolean passed = true;
+
+        try {
+            ChunkJournal journal = ChunkJournal.open(journalDir, "transfer-1", 300, "md5:1");
+            journal.recordUploadSession("session-1");
+            journal.recordDispatch(0, 0, 100);
+            journal.recordDispatch(1, 100, 200);
+            journal.recordDispatch(2, 200, 300);
+            journal.recordCompletion(0, "etag-0");
+            journal.recordCompletion(1, "etag-1");
+            journal.close();
+
+            // A corrupted line in the middle and the completion of chunk 2 torn in the middle of its tag
+            Files.write(path, "D x y z\nC 2 eta".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+            journal = ChunkJournal.open(journalDir, "transfer-1", 300, "md5:1");
+            passed &= check("Upload session", journal.getUploadSessionId(), "session-1");
+            passed &= check("Uploaded chunks after the crash", ids(journal.getUploadedChunks()),
+                    "[0:etag-0, 1:etag-1]");
+            passed &= check("Pending chunks after the crash", ids(journal.getPendingChunks()), "[2:null]");
+            long[] next = journal.getNextChunkPosition();
+            passed &= check("Next chunk position", next[0] + "/" + next[1], "300/3");
+
+            journal.recordCompletion(2, "etag-2");
+            journal.close();
+
+            journal = ChunkJournal.open(journalDir, "transfer-1", 300, "md5:1");
+            passed &= check("Uploaded chunks after the restart", ids(journal.getUploadedChunks()),
+                    "[0:etag-0, 1:etag-1, 2:etag-2]");
+            passed &= check("Pending chunks after the restart", ids(journal.getPendingChunks()), "[]");
+            journal.close();
+
+            journal = ChunkJournal.open(journalDir, "transfer-1", 300, "md5:2");
+            passed &= check("Uploaded chunks of a changed source", ids(journal.getUploadedChunks()), "[]");
+            passed &= check("Upload session of a changed source", journal.getUploadSessionId(), null);
+            journal.delete();
+
+        } finally {
+            Files.deleteIfExists(path);
+            new File(journalDir).delete();
+        }
+        System.out.println("Passed " + passed);
+    }
+
+    private static String ids(List<UploadedChunk> chunks) {
+        return chunks.stream().map(chunk -> chunk.getChunkId() + ":" + chunk.getTag())
+                .collect(Collectors.toList()).toString();
+    }
+
+    private static boolean check(String name, String actual, String expected) {
+        boolean matches = expected == null ? actual == null : expected.equals(actual);
+        System.out.println(name + " " + actual + (matches ? "" : " instead of " + expected));
+        return matches;
+    }
+}
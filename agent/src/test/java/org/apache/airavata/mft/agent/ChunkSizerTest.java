@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits files of several sizes within the part limits of a destination and checks that the chunks cover the file, stay
+ * within the part size and count limits and never leave a trailing chunk below the minimum part size
+ */
+public class ChunkSizerTest {
+
+    private static final long MB = 1024 * 1024;
+
+    // Part limits of S3
+    private static final ConnectorCapabilities S3_LIMITS = ConnectorCapabilities.Builder.newBuilder()
+            .withMinPartSize(5 * MB).withMaxPartSize(5 * 1024 * MB).withMaxPartCount(10000).build();
+
+    private static final ConnectorCapabilities SMALL_LIMITS = ConnectorCapabilities.Builder.newBuilder()
+            .withMinPartSize(10).withMaxPartSize(100).withMaxPartCount(8).build();
+
+    public static void main(String args[]) throws Exception {
+        boolean passed = true;
+
+        // Tail of 1 MB is merged into the chunk before it
+        passed &= checkSplit(S3_LIMITS, 21 * MB, 10 * MB, 0, 2);
+        // Tail of exactly the minimum part size is kept
+        passed &= checkSplit(S3_LIMITS, 25 * MB, 10 * MB, 0, 3);
+        // File smaller than the minimum part size is moved as a single chunk
+        passed &= checkSplit(S3_LIMITS, 3 * MB, 10 * MB, 0, 1);
+        // Chunks grow so the file fits in 10000 parts
+        passed &= checkSplit(S3_LIMITS, 100000 * MB, 5 * MB, 0, 10000);
+        // Chunks grow so the file fits in the 8 parts allowed
+        passed &= checkSplit(SMALL_LIMITS, 700, 10, 0, 8);
+        // Tail merge would exceed the maximum part size, so the tail is left at the minimum part size
+        passed &= checkSplit(SMALL_LIMITS, 105, 100, 0, 2);
+        // Adaptive sizing grows the chunks of a fast transfer without breaking the limits
+        passed &= checkSplit(S3_LIMITS, 1000 * MB, 8 * MB, 1000, -1);
+
+        try {
+            new ChunkSizer(801, 10, 10, 0, SMALL_LIMITS);
+            System.out.println("File larger than the part limits was accepted");
+            passed = false;
+        } catch (IllegalArgumentException e) {
+            System.out.println("File larger than the part limits was rejected");
+        }
+
+        System.out.println("Passed " + passed);
+    }
+
+    /*
+    Splits the file and checks the chunks. An expected chunk count of -1 is not checked
+     */
+    private static boolean checkSplit(ConnectorCapabilities limits, long fileLength, long chunkSize,
+                                      long targetChunkMillis, int expectedChunks) {
+
+        ChunkSizer sizer = new ChunkSizer(fileLength, chunkSize, 8 * chunkSize, targetChunkMillis, limits);
+        List<Long> sizes = new ArrayList<>();
+        long offset = 0;
+        while (offset < fileLength) {
+            long size = sizer.nextChunkSize(offset, sizes.size());
+            if (size <= 0) {
+                System.out.println("Chunk " + sizes.size() + " of file of " + fileLength + " bytes is empty");
+                return false;
+            }
+            sizes.add(size);
+            offset += size;
+            // A chunk of 100 MB per second
+            sizer.recordChunk(size, Math.max(size / (100 * MB / 1000), 1));
+        }
+
+        boolean passed = offset == fileLength;
+        passed &= sizes.size() <= limits.getMaxPartCount();
+        passed &= expectedChunks < 0 || sizes.size() == expectedChunks;
+        for (int idx = 0; idx < sizes.size(); idx++) {
+            long size = sizes.get(idx);
+            passed &= size <= limits.getMaxPartSize() && size <= sizer.getMaxChunkSize();
+            // Only a file smaller than the minimum part size may have a chunk below it
+            passed &= size >= limits.getMinPartSize() || fileLength < limits.getMinPartSize();
+        }
+
+        System.out.println("File of " + fileLength + " bytes split into " + sizes.size() + " chunks of " +
+                sizes.stream().min(Long::compare).get() + " to " + sizes.stream().max(Long::compare).get() +
+                " bytes " + (passed ? "passed" : "failed"));
+        return passed;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import org.apache.airavata.mft.core.api.ChecksumReportingConnector;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+/**
+ * Checks the checksums combined from the chunks of a transfer against the checksums of the whole content and against
+ * the values the destinations report
+ */
+public class ChunkedChecksumTest {
+
+    private static final String[] PARTS = {"The quick brown fox ", "jumps over ", "the lazy dog"};
+
+    public static void main(String args[]) throws Exception {
+        boolean passed = testCombineCrc32c();
+        passed &= testVerify(ChecksumReportingConnector.CRC32C, new String[]{"1234", "56789"}, "e3069283");
+        // ETag S3 reports for an object uploaded in these three parts: MD5 of the concatenated part MD5s and the count
+        passed &= testVerify(ChecksumReportingConnector.MULTIPART_ETAG, PARTS,
+                "\"29c86a1fb7cd57ab41849af95d74d794-3\"");
+        passed &= testVerify(ChecksumReportingConnector.MD5_OF_SEGMENT_MD5S, PARTS, "49ea5b7f8ce428f3436a1700fdcc33c8");
+        passed &= testMismatch();
+        System.out.println("Passed " + passed);
+    }
+
+    /*
+    Compares the combined CRC32C of random splits with the CRC32C of the concatenated parts
+     */
+    private static boolean testCombineCrc32c() {
+        Random random = new Random(42);
+        int[] lengths = {0, 1, 7, 64, 1000, 4096, 65537, 1 << 20};
+        boolean passed = true;
+        for (int length1 : lengths) {
+            for (int length2 : lengths) {
+                byte[] data = new byte[length1 + length2];
+                random.nextBytes(data);
+
+                long expected = crc32c(data, 0, data.length);
+                long combined = ChunkedChecksum.combineCrc32c(crc32c(data, 0, length1),
+                        crc32c(data, length1, length2), length2);
+                if (combined != expected) {
+                    System.out.println("CRC32C of parts of " + length1 + " and " + length2 + " bytes combined to " +
+                            Long.toHexString(combined) + " instead of " + Long.toHexString(expected));
+                    passed = false;
+                }
+            }
+        }
+        System.out.println("Combined CRC32C matches " + passed);
+        return passed;
+    }
+
+    private static boolean testVerify(String algorithm, String[] parts, String reported) throws Exception {
+        ChunkedChecksum checksum = newChecksum(algorithm, parts);
+        try {
+            checksum.verify(Optional.of(reported));
+            System.out.println(algorithm + " verified");
+            return true;
+        } catch (IOException e) {
+            System.out.println(algorithm + " failed. " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean testMismatch() throws Exception {
+        ChunkedChecksum checksum = newChecksum(ChecksumReportingConnector.CRC32C, new String[]{"1234", "56780"});
+        try {
+            checksum.verify(Optional.of("e3069283"));
+            System.out.println("Mismatch was not detected");
+            return false;
+        } catch (IOException e) {
+            System.out.println("Mismatch detected");
+            return true;
+        }
+    }
+
+    /*
+    Records the parts as chunks in reverse order, the way chunks may complete in any order
+     */
+    private static ChunkedChecksum newChecksum(String algorithm, String[] parts) throws IOException {
+        long fileLength = 0;
+        for (String part : parts) {
+            fileLength += part.length();
+        }
+        ChunkedChecksum checksum = new ChunkedChecksum(algorithm, fileLength);
+        for (int idx = parts.length - 1; idx >= 0; idx--) {
+            ChunkedChecksum.ChunkDigest digest = checksum.newDigest();
+            try (InputStream inputStream = digest.wrap(
+                    new ByteArrayInputStream(parts[idx].getBytes(StandardCharsets.US_ASCII)))) {
+                inputStream.readAllBytes();
+            }
+            checksum.record(idx, digest);
+        }
+        return checksum;
+    }
+
+    private static long crc32c(byte[] data, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+}
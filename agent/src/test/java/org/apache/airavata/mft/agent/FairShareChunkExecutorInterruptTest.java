@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.agent;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cancels a running chunk with an interrupt and checks that the next chunk on the same worker does blocking I/O without
+ * seeing the interrupt
+ */
+public class FairShareChunkExecutorInterruptTest {
+
+    public static void main(String args[]) throws Exception {
+        FairShareChunkExecutor executor = new FairShareChunkExecutor(1);
+        Executor transfer1 = executor.forTransfer("transfer-1", 1);
+        Executor transfer2 = executor.forTransfer("transfer-2", 1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        FutureTask<Void> cancelled = new FutureTask<>(() -> {
+            started.countDown();
+            // Swallows the interrupt the way a chunk stuck in a connector call may, leaving the flag set
+            long end = System.currentTimeMillis() + 500;
+            while (System.currentTimeMillis() < end) {
+                Thread.onSpinWait();
+            }
+            return null;
+        });
+        transfer1.execute(cancelled);
+        started.await();
+        cancelled.cancel(true);
+
+        Path file = Files.createTempFile("mft-interrupt-test", ".bin");
+        FutureTask<String> next = new FutureTask<>(() -> {
+            boolean interrupted = Thread.currentThread().isInterrupted();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[4096]), 0);
+            }
+            Thread.sleep(10);
+            return "interrupted on start " + interrupted;
+        });
+        transfer2.execute(next);
+
+        try {
+            System.out.println("Next task completed, " + next.get());
+            System.out.println("Passed " + (Files.size(file) == 4096));
+        } catch (Exception e) {
+            System.out.println("Passed false. Next task failed with " + e.getCause());
+        } finally {
+            Files.deleteIfExists(file);
+            executor.shutdown();
+        }
+    }
+}
@@ -23,6 +23,10 @@ public class TransferState {
     private long updateTimeMils;
     private double percentage;
     private String description;
+    private int chunkRetries;
+    private String checksumAlgorithm;
+    private String checksum;
+    private String checksumStatus;
 
     public String getState() {
         return state;
@@ -68,4 +72,40 @@ public class TransferState {
         this.publisher = publisher;
         return this;
     }
+
+    public int getChunkRetries() {
+        return chunkRetries;
+    }
+
+    public TransferState setChunkRetries(int chunkRetries) {
+        this.chunkRetries = chunkRetries;
+        return this;
+    }
+
+    public String getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
+    public TransferState setChecksumAlgorithm(String checksumAlgorithm) {
+        this.checksumAlgorithm = checksumAlgorithm;
+        return this;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public TransferState setChecksum(String checksum) {
+        this.checksum = checksum;
+        return this;
+    }
+
+    public String getChecksumStatus() {
+        return checksumStatus;
+    }
+
+    public TransferState setChecksumStatus(String checksumStatus) {
+        this.checksumStatus = checksumStatus;
+        return this;
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agent wide pool of copy buffers shared by the transfer paths and the connectors. Buffers are grouped in power of two
+ * size classes between {@link #MIN_CLASS_SIZE} and {@link #MAX_CLASS_SIZE}. A request is served from the smallest class
+ * that fits it, so the returned buffer may be larger than requested. Requests above the largest class are allocated
+ * and dropped without pooling. Returned buffers are kept only while the total pooled bytes stay within the limit.
+ *
+ * Heap arrays serve stream based copy loops and direct buffers serve channel based ones.
+ */
+public class BufferPool {
+
+    public static final int MIN_CLASS_SIZE = 4 * 1024;
+    public static final int MAX_CLASS_SIZE = 16 * 1024 * 1024;
+
+    public static final int DEFAULT_COPY_SIZE = 128 * 1024;
+
+    private static final BufferPool DEFAULT = new BufferPool(256 * 1024 * 1024L);
+
+    private volatile long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    private final Queue<byte[]>[] heapClasses;
+    private final Queue<ByteBuffer>[] directClasses;
+
+    private final Map<String, Integer> copySizes = new ConcurrentHashMap<>();
+    private volatile int defaultCopySize = DEFAULT_COPY_SIZE;
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        int classCount = classIndex(MAX_CLASS_SIZE) + 1;
+        heapClasses = new Queue[classCount];
+        directClasses = new Queue[classCount];
+        for (int i = 0; i < classCount; i++) {
+            heapClasses[i] = new ConcurrentLinkedQueue<>();
+            directClasses[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * @return the pool shared by the whole agent
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Borrows a heap buffer of at least the given size. It should be returned through {@link #release(byte[])}
+     */
+    public byte[] acquire(int size) {
+        if (size > MAX_CLASS_SIZE) {
+            return new byte[size];
+        }
+        int idx = classIndex(size);
+        byte[] buffer = heapClasses[idx].poll();
+        if (buffer == null) {
+            return new byte[classSize(idx)];
+        }
+        pooledBytes.addAndGet(-buffer.length);
+        return buffer;
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer == null || !isClassSize(buffer.length) || !reserve(buffer.length)) {
+            return;
+        }
+        heapClasses[classIndex(buffer.length)].offer(buffer);
+    }
+
+    /**
+     * Borrows a cleared direct buffer with a capacity of at least the given size. It should be returned through
+     * {@link #release(ByteBuffer)}
+     */
+    public ByteBuffer acquireDirect(int size) {
+        if (size > MAX_CLASS_SIZE) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        int idx = classIndex(size);
+        ByteBuffer buffer = directClasses[idx].poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(classSize(idx));
+        }
+        pooledBytes.addAndGet(-buffer.capacity());
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || !isClassSize(buffer.capacity()) || !reserve(buffer.capacity())) {
+            return;
+        }
+        directClasses[classIndex(buffer.capacity())].offer(buffer);
+    }
+
+    /**
+     * Sets the copy buffer size used by the connectors of the given storage type
+     *
+     * @param storageType storage type of the connectors. Eg: LOCAL, FTP
+     * @param size buffer size in bytes
+     */
+    public void setCopySize(String storageType, int size) {
+        copySizes.put(storageType, size);
+    }
+
+    /**
+     * @param maxPooledBytes upper bound of the bytes kept in the pool. Buffers returned above the bound are dropped
+     */
+    public void setMaxPooledBytes(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    public void setDefaultCopySize(int size) {
+        this.defaultCopySize = size;
+    }
+
+    /**
+     * @param storageType type of the storage or null for the default copy size
+     */
+    public int getCopySize(String storageType) {
+        return storageType == null ? defaultCopySize : copySizes.getOrDefault(storageType, defaultCopySize);
+    }
+
+    /**
+     * Copies up to limit bytes from the input stream to the output stream through a pooled buffer of the copy size
+     * configured for the storage type. The output stream is not flushed or closed.
+     *
+     * @return number of bytes copied
+     */
+    public long copy(InputStream inputStream, OutputStream outputStream, long limit, String storageType)
+            throws IOException {
+        byte[] buffer = acquire(getCopySize(storageType));
+        try {
+            long copied = 0;
+            while (copied < limit) {
+                int n = inputStream.read(buffer, 0, (int) Math.min(buffer.length, limit - copied));
+                if (n < 0) {
+                    break;
+                }
+                outputStream.write(buffer, 0, n);
+                copied += n;
+            }
+            return copied;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private boolean reserve(int size) {
+        long current;
+        do {
+            current = pooledBytes.get();
+            if (current + size > maxPooledBytes) {
+                return false;
+            }
+        } while (!pooledBytes.compareAndSet(current, current + size));
+        return true;
+    }
+
+    private static int classIndex(int size) {
+        int rounded = Math.max(size, MIN_CLASS_SIZE);
+        int bits = 32 - Integer.numberOfLeadingZeros(rounded - 1);
+        return bits - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    }
+
+    private static int classSize(int idx) {
+        return MIN_CLASS_SIZE << idx;
+    }
+
+    private static boolean isClassSize(int size) {
+        return size >= MIN_CLASS_SIZE && size <= MAX_CLASS_SIZE && Integer.bitCount(size) == 1;
+    }
+}
@@ -17,20 +17,72 @@
 
 package org.apache.airavata.mft.core;
 
-import java.io.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Semaphore;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * A byte buffer bridging bytes written to an output stream by one thread to an input stream read by another thread.
+ * Bytes are kept in a ring over a primitive array. The writer and the reader each advance their own sequence, the
+ * total number of bytes written or read, so neither of them takes a lock and arrays of bytes are copied in bulk. Each
+ * sequence is padded to a cache line of its own, and each side caches the last sequence of the other side it saw, so
+ * the two threads only share a cache line when the ring looks full or empty. A side that can not make progress spins
+ * briefly and then parks until the other side wakes it.
+ *
+ * Only a single writer thread and a single reader thread are supported.
+ */
 public class CircularStreamingBuffer {
 
-    private int bufferSize = 18192;
-    private ArrayBlockingQueue<Byte> buffer = new ArrayBlockingQueue<>(bufferSize);
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /*
+    Number of times a side checks the other side's sequence before it parks. Spinning only helps when the other side
+    runs on another processor
+     */
+    private static final int SPIN_TRIES = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+
+    private final byte[] buffer;
+    private final int mask;
+
+    /*
+    Total number of bytes written. Only updated by the writer
+     */
+    private final Sequence writeSequence = new Sequence();
+
+    /*
+    Total number of bytes read. Only updated by the reader
+     */
+    private final Sequence readSequence = new Sequence();
+
+    private volatile boolean osClosed = false;
+    private volatile boolean isClosed = false;
+
+    private volatile Thread parkedReader;
+    private volatile Thread parkedWriter;
 
-    private boolean osClosed = false;
-    private Semaphore readSem = new Semaphore(0);
+    private final OutputStream outputStream = new CSBOutputStream();
+    private final InputStream inputStream = new CSBInputStream();
 
-    private OutputStream outputStream = new CSBOutputStream();
-    private InputStream inputStream = new CSBInputStream();
+    public CircularStreamingBuffer() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize size of the ring in bytes. Rounded up to a power of two
+     */
+    public CircularStreamingBuffer(int bufferSize) {
+        if (bufferSize <= 0 || bufferSize > (1 << 30)) {
+            throw new IllegalArgumentException("Buffer size should be between 1 and 2^30 bytes but was " + bufferSize);
+        }
+        int capacity = Integer.highestOneBit(bufferSize);
+        if (capacity < bufferSize) {
+            capacity <<= 1;
+        }
+        this.buffer = new byte[capacity];
+        this.mask = capacity - 1;
+    }
 
     public OutputStream getOutputStream() {
         return outputStream;
@@ -40,15 +92,17 @@ public class CircularStreamingBuffer {
         return inputStream;
     }
 
-    private void updateRead(boolean forced) {
-        if (forced || readSem.availablePermits() == 0) {
-            //System.out.println("Read sem released");
-            readSem.release();
+    private static void unpark(Thread thread) {
+        if (thread != null) {
+            LockSupport.unpark(thread);
         }
     }
 
     public class CSBOutputStream extends OutputStream {
 
+        // Writer side copy of the read sequence. Lags the real one so the space it allows is always free
+        private long cachedRead = 0;
+
         @Override
         public void flush() throws IOException {
         }
@@ -56,42 +110,190 @@ public class CircularStreamingBuffer {
         @Override
         public void close() throws IOException {
             osClosed = true;
-            updateRead(true);
+            unpark(parkedReader);
         }
 
         @Override
         public void write(int b) throws IOException {
-            try {
-                buffer.put((byte)b);
-                //System.out.println("Writing");
-                updateRead(false);
-            } catch (InterruptedException e) {
-                throw new IOException(e);
+            long position = writeSequence.value;
+            awaitSpace(position, 1);
+            buffer[(int) position & mask] = (byte) b;
+            publish(position + 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException("Offset " + off + " and length " + len + " do not fit into an array of "
+                        + b.length + " bytes");
+            }
+            long position = writeSequence.value;
+            while (len > 0) {
+                int free = awaitSpace(position, len);
+                int count = Math.min(len, free);
+                int index = (int) position & mask;
+                int firstPart = Math.min(count, buffer.length - index);
+                System.arraycopy(b, off, buffer, index, firstPart);
+                System.arraycopy(b, off + firstPart, buffer, 0, count - firstPart);
+                position += count;
+                off += count;
+                len -= count;
+                publish(position);
+            }
+        }
+
+        /*
+        Waits until at least one byte of the ring is free and returns the number of free bytes
+         */
+        private int awaitSpace(long position, int wanted) throws IOException {
+            if (osClosed) {
+                throw new IOException("Output stream is closed");
+            }
+            if (isClosed) {
+                throw new IOException("Input stream of the buffer is closed");
             }
+            int free = buffer.length - (int) (position - cachedRead);
+            if (free >= wanted) {
+                return free;
+            }
+            for (int tries = 0; ; tries++) {
+                cachedRead = readSequence.value;
+                free = buffer.length - (int) (position - cachedRead);
+                if (free > 0) {
+                    return free;
+                }
+                if (isClosed) {
+                    throw new IOException("Input stream of the buffer is closed");
+                }
+                if (tries < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                parkedWriter = Thread.currentThread();
+                // Checked again after announcing the park so a read in between is not missed
+                if (readSequence.value == cachedRead && !isClosed) {
+                    LockSupport.park(this);
+                }
+                parkedWriter = null;
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Interrupted while waiting for the reader");
+                }
+            }
+        }
+
+        private void publish(long position) {
+            writeSequence.value = position;
+            unpark(parkedReader);
         }
     }
 
     public class CSBInputStream extends InputStream {
 
+        // Reader side copy of the write sequence. Lags the real one so the bytes it allows are always written
+        private long cachedWrite = 0;
+
         @Override
         public int read() throws IOException {
-            //System.out.println("Read int");
-            Byte res = buffer.poll();
-            //System.out.println("Done read int");
-            if (res == null) {
-                //System.out.println("Received null in is.read()");
-                if (osClosed) return -1;
-                try {
-                    //System.out.println("Read sem acquired");
-                    readSem.acquire();
-                    //System.out.println("Read Released");
-                    return read();
-                } catch (InterruptedException e) {
-                    throw new IOException(e);
+            long position = readSequence.value;
+            if (awaitData(position) == 0) {
+                return -1;
+            }
+            int b = buffer[(int) position & mask] & 0xff;
+            consume(position + 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException("Offset " + off + " and length " + len + " do not fit into an array of "
+                        + b.length + " bytes");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            long position = readSequence.value;
+            int count = Math.min(len, awaitData(position));
+            if (count == 0) {
+                return -1;
+            }
+            int index = (int) position & mask;
+            int firstPart = Math.min(count, buffer.length - index);
+            System.arraycopy(buffer, index, b, off, firstPart);
+            System.arraycopy(buffer, 0, b, off + firstPart, count - firstPart);
+            consume(position + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) (writeSequence.value - readSequence.value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            isClosed = true;
+            unpark(parkedWriter);
+        }
+
+        /*
+        Waits until at least one byte is written and returns the number of readable bytes. 0 if the output stream was
+        closed and all the bytes were read
+         */
+        private int awaitData(long position) throws IOException {
+            int readable = (int) (cachedWrite - position);
+            if (readable > 0) {
+                return readable;
+            }
+            for (int tries = 0; ; tries++) {
+                // Closed is read before the sequence so the bytes written before the close are not missed
+                boolean closed = osClosed;
+                cachedWrite = writeSequence.value;
+                readable = (int) (cachedWrite - position);
+                if (readable > 0) {
+                    return readable;
+                }
+                if (closed) {
+                    return 0;
+                }
+                if (tries < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                parkedReader = Thread.currentThread();
+                // Checked again after announcing the park so a write or a close in between is not missed
+                if (writeSequence.value == cachedWrite && !osClosed) {
+                    LockSupport.park(this);
+                }
+                parkedReader = null;
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Interrupted while waiting for the writer");
                 }
-            } else {
-                return res & 0xff;
             }
         }
+
+        private void consume(long position) {
+            readSequence.value = position;
+            unpark(parkedWriter);
+        }
+    }
+
+    /*
+    A sequence padded on both sides so the writer and the reader sequences never share a cache line with each other or
+    with other fields
+     */
+    @SuppressWarnings("unused")
+    private static class Sequence extends SequenceValue {
+        long p9, p10, p11, p12, p13, p14, p15;
+    }
+
+    @SuppressWarnings("unused")
+    private static class SequenceValue extends SequencePadding {
+        volatile long value;
+    }
+
+    @SuppressWarnings("unused")
+    private static class SequencePadding {
+        long p1, p2, p3, p4, p5, p6, p7;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core;
+
+import org.apache.airavata.mft.core.api.ConnectorProvider;
+import org.apache.airavata.mft.core.api.IncomingChunkedConnector;
+import org.apache.airavata.mft.core.api.IncomingStreamingConnector;
+import org.apache.airavata.mft.core.api.MetadataCollector;
+import org.apache.airavata.mft.core.api.OutgoingChunkedConnector;
+import org.apache.airavata.mft.core.api.OutgoingStreamingConnector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Connectors and metadata collectors of the storage types found on the classpath. Providers are discovered with
+ * {@link ServiceLoader} once, and the factories of a storage type are resolved on its first use and cached, so
+ * creating a connector for a request is a map lookup and a constructor call. Storage types can be resolved upfront with
+ * {@link #preload(Collection)} so the first transfers of the types a site uses do not pay for loading their classes.
+ */
+public final class ConnectorRegistry {
+
+    private final Map<String, ConnectorProvider> providers;
+    private final Map<String, Factories> factories = new ConcurrentHashMap<>();
+
+    ConnectorRegistry(Iterable<ConnectorProvider> discovered) {
+        Map<String, ConnectorProvider> providers = new HashMap<>();
+        for (ConnectorProvider provider : discovered) {
+            ConnectorProvider existing = providers.putIfAbsent(provider.getStorageType(), provider);
+            if (existing != null) {
+                throw new IllegalStateException("Storage type " + provider.getStorageType() + " is provided by both " +
+                        existing.getClass().getName() + " and " + provider.getClass().getName());
+            }
+        }
+        this.providers = Collections.unmodifiableMap(providers);
+    }
+
+    private static class Holder {
+        private static final ConnectorRegistry DEFAULT = new ConnectorRegistry(
+                ServiceLoader.load(ConnectorProvider.class, ConnectorRegistry.class.getClassLoader()));
+    }
+
+    /**
+     * @return registry of the providers on the classpath of the core
+     */
+    public static ConnectorRegistry getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    public Set<String> getStorageTypes() {
+        return providers.keySet();
+    }
+
+    /**
+     * Resolves the factories of the given storage types and loads their connector classes
+     *
+     * @return the storage types that have no provider
+     */
+    public List<String> preload(Collection<String> storageTypes) {
+        List<String> missing = new ArrayList<>();
+        for (String storageType : storageTypes) {
+            Factories typeFactories = factoriesOf(storageType);
+            if (typeFactories == null) {
+                missing.add(storageType);
+                continue;
+            }
+            typeFactories.load();
+        }
+        return missing;
+    }
+
+    public Optional<IncomingStreamingConnector> newIncomingStreamingConnector(String storageType) {
+        Factories typeFactories = factoriesOf(storageType);
+        return typeFactories == null ? Optional.empty() : create(typeFactories.incomingStreaming);
+    }
+
+    public Optional<OutgoingStreamingConnector> newOutgoingStreamingConnector(String storageType) {
+        Factories typeFactories = factoriesOf(storageType);
+        return typeFactories == null ? Optional.empty() : create(typeFactories.outgoingStreaming);
+    }
+
+    public Optional<IncomingChunkedConnector> newIncomingChunkedConnector(String storageType) {
+        Factories typeFactories = factoriesOf(storageType);
+        return typeFactories == null ? Optional.empty() : create(typeFactories.incomingChunked);
+    }
+
+    public Optional<OutgoingChunkedConnector> newOutgoingChunkedConnector(String storageType) {
+        Factories typeFactories = factoriesOf(storageType);
+        return typeFactories == null ? Optional.empty() : create(typeFactories.outgoingChunked);
+    }
+
+    public Optional<MetadataCollector> newMetadataCollector(String storageType) {
+        Factories typeFactories = factoriesOf(storageType);
+        return typeFactories == null ? Optional.empty() : create(typeFactories.metadataCollector);
+    }
+
+    private Factories factoriesOf(String storageType) {
+        ConnectorProvider provider = storageType == null ? null : providers.get(storageType);
+        return provider == null ? null : factories.computeIfAbsent(storageType, t -> new Factories(provider));
+    }
+
+    private static <T> Optional<T> create(Supplier<T> factory) {
+        return factory == null ? Optional.empty() : Optional.of(factory.get());
+    }
+
+    /*
+    Factories of a single storage type. Null if the storage type does not support the connector
+     */
+    private static class Factories {
+
+        final Supplier<IncomingStreamingConnector> incomingStreaming;
+        final Supplier<OutgoingStreamingConnector> outgoingStreaming;
+        final Supplier<IncomingChunkedConnector> incomingChunked;
+        final Supplier<OutgoingChunkedConnector> outgoingChunked;
+        final Supplier<MetadataCollector> metadataCollector;
+
+        Factories(ConnectorProvider provider) {
+            this.incomingStreaming = provider.getIncomingStreamingConnector().orElse(null);
+            this.outgoingStreaming = provider.getOutgoingStreamingConnector().orElse(null);
+            this.incomingChunked = provider.getIncomingChunkedConnector().orElse(null);
+            this.outgoingChunked = provider.getOutgoingChunkedConnector().orElse(null);
+            this.metadataCollector = provider.getMetadataCollector().orElse(null);
+        }
+
+        /*
+        Connectors only initialize in init() so creating one loads its classes without side effects
+         */
+        void load() {
+            create(incomingStreaming);
+            create(outgoingStreaming);
+            create(incomingChunked);
+            create(outgoingChunked);
+            create(metadataCollector);
+        }
+    }
+}
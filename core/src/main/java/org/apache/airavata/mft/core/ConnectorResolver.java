@@ -15,6 +15,7 @@
  * limitations under the License.
  */
 
+
 package org.apache.airavata.mft.core;
 
 import org.apache.airavata.mft.core.api.IncomingChunkedConnector;
@@ -24,90 +25,25 @@ import org.apache.airavata.mft.core.api.OutgoingStreamingConnector;
 
 import java.util.Optional;
 
+/**
+ * Creates the connectors of a storage type from the providers of the {@link ConnectorRegistry}
+ */
 public final class ConnectorResolver {
 
     public static Optional<IncomingStreamingConnector> resolveIncomingStreamingConnector(String type) throws Exception {
-
-        String className = null;
-        switch (type) {
-            case "SCP":
-                className = "org.apache.airavata.mft.transport.scp.SCPIncomingConnector";
-                break;
-            case "S3":
-                className = "org.apache.airavata.mft.transport.s3.S3IncomingConnector";
-                break;
-            case "ODATA":
-                className = "org.apache.airavata.mft.transport.odata.ODataIncomingConnector";
-                break;
-        }
-
-        if (className != null) {
-            Class<?> aClass = Class.forName(className);
-            return Optional.of((IncomingStreamingConnector) aClass.getDeclaredConstructor().newInstance());
-        } else {
-            return Optional.empty();
-        }
+        return ConnectorRegistry.getDefault().newIncomingStreamingConnector(type);
     }
 
     public static Optional<OutgoingStreamingConnector> resolveOutgoingStreamingConnector(String type) throws Exception {
-
-        String className = null;
-        switch (type) {
-            case "SCP":
-                className = "org.apache.airavata.mft.transport.scp.SCPOutgoingConnector";
-                break;
-            case "S3":
-                className = "org.apache.airavata.mft.transport.s3.S3OutgoingStreamingConnector";
-                break;
-
-        }
-
-        if (className != null) {
-            Class<?> aClass = Class.forName(className);
-            return Optional.of((OutgoingStreamingConnector) aClass.getDeclaredConstructor().newInstance());
-        } else {
-            return Optional.empty();
-        }
+        return ConnectorRegistry.getDefault().newOutgoingStreamingConnector(type);
     }
 
     public static Optional<IncomingChunkedConnector> resolveIncomingChunkedConnector(String type) throws Exception {
-
-        String className = null;
-        switch (type) {
-            case "S3":
-                className = "org.apache.airavata.mft.transport.s3.S3IncomingConnector";
-                break;
-            case "SWIFT":
-                className = "org.apache.airavata.mft.transport.swift.SwiftIncomingConnector";
-                break;
-        }
-
-        if (className != null) {
-            Class<?> aClass = Class.forName(className);
-            return Optional.of((IncomingChunkedConnector) aClass.getDeclaredConstructor().newInstance());
-        } else {
-            return Optional.empty();
-        }
+        return ConnectorRegistry.getDefault().newIncomingChunkedConnector(type);
     }
 
     public static Optional<OutgoingChunkedConnector> resolveOutgoingChunkedConnector(String type) throws Exception {
-
-        String className = null;
-        switch (type) {
-            case "S3":
-                className = "org.apache.airavata.mft.transport.s3.S3OutgoingConnector";
-                break;
-            case "SWIFT":
-                className = "org.apache.airavata.mft.transport.swift.SwiftOutgoingConnector";
-                break;
-        }
-
-        if (className != null) {
-            Class<?> aClass = Class.forName(className);
-            return Optional.of((OutgoingChunkedConnector) aClass.getDeclaredConstructor().newInstance());
-        } else {
-            return Optional.empty();
-        }
+        return ConnectorRegistry.getDefault().newOutgoingChunkedConnector(type);
     }
 
 }
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown by connectors when the storage rejects a request because of its load. Eg: 503 SlowDown of S3 or an ssh
+ * channel refused as the MaxSessions limit of the server is reached. The agent slows down the requests to the storage
+ * and retries the request.
+ */
+public class EndpointThrottledException extends IOException {
+
+    private final long retryAfterMillis;
+
+    public EndpointThrottledException(String message, Throwable cause) {
+        this(message, -1, cause);
+    }
+
+    /**
+     * @param retryAfterMillis delay the storage asked for before the next request. -1 if the storage did not ask for one
+     */
+    public EndpointThrottledException(String message, long retryAfterMillis, Throwable cause) {
+        super(message, cause);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
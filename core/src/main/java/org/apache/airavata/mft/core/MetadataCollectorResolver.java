@@ -19,51 +19,14 @@ package org.apache.airavata.mft.core;
 
 import org.apache.airavata.mft.core.api.MetadataCollector;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Optional;
 
+/**
+ * Creates the metadata collector of a storage type from the providers of the {@link ConnectorRegistry}
+ */
 public final class MetadataCollectorResolver {
 
-    public static Optional<MetadataCollector> resolveMetadataCollector(String type) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
-        String className = null;
-        switch (type) {
-            case "SCP":
-                className = "org.apache.airavata.mft.transport.scp.SCPMetadataCollector";
-                break;
-            case "LOCAL":
-                className = "org.apache.airavata.mft.transport.local.LocalMetadataCollector";
-                break;
-            case "S3":
-                className = "org.apache.airavata.mft.transport.s3.S3MetadataCollector";
-                break;
-            case "BOX":
-                className = "org.apache.airavata.mft.transport.box.BoxMetadataCollector";
-                break;
-            case "AZURE":
-                className = "org.apache.airavata.mft.transport.azure.AzureMetadataCollector";
-                break;
-            case "GCS":
-                className = "org.apache.airavata.mft.transport.gcp.GCSMetadataCollector";
-                break;
-            case "DROPBOX":
-                className = "org.apache.airavata.mft.transport.dropbox.DropboxMetadataCollector";
-                break;
-            case "FTP":
-                className = "org.apache.airavata.mft.transport.ftp.FTPMetadataCollector";
-                break;
-            case "SWIFT":
-                className = "org.apache.airavata.mft.transport.swift.SwiftMetadataCollector";
-                break;
-            case "ODATA":
-                className = "org.apache.airavata.mft.transport.odata.ODataMetadataCollector";
-                break;
-        }
-
-        if (className != null) {
-            Class<?> aClass = Class.forName(className);
-            return Optional.of((MetadataCollector) aClass.getDeclaredConstructor().newInstance());
-        } else {
-            return Optional.empty();
-        }
+    public static Optional<MetadataCollector> resolveMetadataCollector(String type) {
+        return ConnectorRegistry.getDefault().newMetadataCollector(type);
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * An {@link IncomingChunkedConnector} that downloads chunks without blocking a thread. When both sides of a chunked
+ * transfer are async connectors, the agent moves the chunks from a small event loop pool and many more chunks can be in
+ * flight than there are threads
+ */
+public interface AsyncIncomingChunkedConnector extends IncomingChunkedConnector {
+
+    /**
+     * Starts downloading the range [startByte, endByte) of the file
+     *
+     * @return completes with the bytes of the chunk once the storage responded. Bytes are only produced as the
+     * subscriber requests them, so a slow destination holds back the download
+     */
+    public CompletableFuture<Flow.Publisher<ByteBuffer>> downloadChunkAsync(int chunkId, long startByte, long endByte);
+}
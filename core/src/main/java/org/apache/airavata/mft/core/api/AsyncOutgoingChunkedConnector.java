@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * An {@link OutgoingChunkedConnector} that uploads chunks without blocking a thread. See
+ * {@link AsyncIncomingChunkedConnector}
+ */
+public interface AsyncOutgoingChunkedConnector extends OutgoingChunkedConnector {
+
+    /**
+     * Uploads the range [startByte, endByte) of the file, requesting the bytes from the publisher as the storage accepts
+     * them
+     *
+     * @return completes once the storage stored the chunk
+     */
+    public CompletableFuture<Void> uploadChunkAsync(int chunkId, long startByte, long endByte,
+                                                    Flow.Publisher<ByteBuffer> data);
+}
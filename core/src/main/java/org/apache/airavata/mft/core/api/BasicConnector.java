@@ -1,7 +1,26 @@
 package org.apache.airavata.mft.core.api;
 
+import java.util.Optional;
+
 public interface BasicConnector {
     public void init(ConnectorConfig connectorConfig) throws Exception;
     public void complete() throws Exception;
     public void failed() throws Exception;
+
+    /**
+     * Id of the storage the connector is bound to. Available after init. Limits shared by all the transfers of a
+     * storage are keyed by this id
+     *
+     * @return the storage id or empty if the connector can not identify its storage
+     */
+    default Optional<String> getStorageId() {
+        return Optional.empty();
+    }
+
+    /**
+     * What the connector and its storage support. Available before init
+     */
+    default ConnectorCapabilities getCapabilities() {
+        return ConnectorCapabilities.DEFAULT;
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+import java.util.Optional;
+
+/**
+ * An {@link OutgoingChunkedConnector} that reports the checksum the storage computed for an object uploaded in chunks,
+ * so the agent can compare it with a value combined from the checksums of the chunks it moved
+ */
+public interface ChecksumReportingConnector extends OutgoingChunkedConnector {
+
+    /**
+     * Hex MD5 of the concatenated binary MD5s of the parts followed by a dash and the part count (Eg: S3 ETag)
+     */
+    public static final String MULTIPART_ETAG = "MULTIPART_ETAG";
+
+    /**
+     * Hex MD5 of the concatenated hex MD5s of the segments (Eg: ETag of a Swift static large object)
+     */
+    public static final String MD5_OF_SEGMENT_MD5S = "MD5_OF_SEGMENT_MD5S";
+
+    /**
+     * Hex CRC32C of the whole object
+     */
+    public static final String CRC32C = "CRC32C";
+
+    /**
+     * @return algorithm of the checksum reported by {@link #getUploadedChecksum()}. One of the constants of this
+     * interface
+     */
+    public String getChecksumAlgorithm();
+
+    /**
+     * Checksum the storage reported for the uploaded object. Available after complete
+     *
+     * @return the checksum or empty if the storage did not report one or reported a value that does not follow the
+     * algorithm for this object. Eg: the ETag of an S3 object encrypted with SSE-KMS or SSE-C
+     */
+    public Optional<String> getUploadedChecksum() throws Exception;
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+/**
+ * What a connector and its storage support, so the agent can size chunks and choose how to move a file without
+ * guessing from the storage type. Capabilities do not depend on the resource and are available before init. The
+ * defaults describe a storage without part limits that supports none of the optional features.
+ */
+public final class ConnectorCapabilities {
+
+    public static final ConnectorCapabilities DEFAULT = Builder.newBuilder().build();
+
+    private long minPartSize;
+    private long maxPartSize;
+    private int maxPartCount;
+    private int preferredConcurrency;
+    private boolean rangeReads;
+    private boolean serverSideCopy;
+    private boolean orderedParts;
+    private long maxSingleShotSize;
+
+    private ConnectorCapabilities() {
+    }
+
+    /**
+     * @return smallest part of a chunked upload, except the last one
+     */
+    public long getMinPartSize() {
+        return minPartSize;
+    }
+
+    /**
+     * @return largest part of a chunked upload
+     */
+    public long getMaxPartSize() {
+        return maxPartSize;
+    }
+
+    /**
+     * @return maximum number of parts of a chunked upload
+     */
+    public int getMaxPartCount() {
+        return maxPartCount;
+    }
+
+    /**
+     * @return number of concurrent requests the storage serves best for a single file. 0 if there is no preference
+     */
+    public int getPreferredConcurrency() {
+        return preferredConcurrency;
+    }
+
+    /**
+     * @return whether arbitrary byte ranges of a file can be read, in any order and more than once
+     */
+    public boolean isRangeReads() {
+        return rangeReads;
+    }
+
+    /**
+     * @return whether the storage can copy a file within itself without moving the bytes through the agent
+     */
+    public boolean isServerSideCopy() {
+        return serverSideCopy;
+    }
+
+    /**
+     * @return whether the parts of a chunked upload must arrive in the order of the file
+     */
+    public boolean isOrderedParts() {
+        return orderedParts;
+    }
+
+    /**
+     * @return largest file written with a single request. 0 if files are never written with a single request
+     */
+    public long getMaxSingleShotSize() {
+        return maxSingleShotSize;
+    }
+
+    public static final class Builder {
+        private long minPartSize = 1;
+        private long maxPartSize = Long.MAX_VALUE;
+        private int maxPartCount = Integer.MAX_VALUE;
+        private int preferredConcurrency = 0;
+        private boolean rangeReads = false;
+        private boolean serverSideCopy = false;
+        private boolean orderedParts = false;
+        private long maxSingleShotSize = 0;
+
+        private Builder() {
+        }
+
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        public Builder withMinPartSize(long minPartSize) {
+            this.minPartSize = minPartSize;
+            return this;
+        }
+
+        public Builder withMaxPartSize(long maxPartSize) {
+            this.maxPartSize = maxPartSize;
+            return this;
+        }
+
+        public Builder withMaxPartCount(int maxPartCount) {
+            this.maxPartCount = maxPartCount;
+            return this;
+        }
+
+        public Builder withPreferredConcurrency(int preferredConcurrency) {
+            this.preferredConcurrency = preferredConcurrency;
+            return this;
+        }
+
+        public Builder withRangeReads(boolean rangeReads) {
+            this.rangeReads = rangeReads;
+            return this;
+        }
+
+        public Builder withServerSideCopy(boolean serverSideCopy) {
+            this.serverSideCopy = serverSideCopy;
+            return this;
+        }
+
+        public Builder withOrderedParts(boolean orderedParts) {
+            this.orderedParts = orderedParts;
+            return this;
+        }
+
+        public Builder withMaxSingleShotSize(long maxSingleShotSize) {
+            this.maxSingleShotSize = maxSingleShotSize;
+            return this;
+        }
+
+        public ConnectorCapabilities build() {
+            if (minPartSize < 1 || maxPartSize < minPartSize || maxPartCount < 1) {
+                throw new IllegalArgumentException("Invalid part limits. Min part size " + minPartSize +
+                        ", max part size " + maxPartSize + ", max part count " + maxPartCount);
+            }
+            ConnectorCapabilities capabilities = new ConnectorCapabilities();
+            capabilities.minPartSize = minPartSize;
+            capabilities.maxPartSize = maxPartSize;
+            capabilities.maxPartCount = maxPartCount;
+            capabilities.preferredConcurrency = preferredConcurrency;
+            capabilities.rangeReads = rangeReads;
+            capabilities.serverSideCopy = serverSideCopy;
+            capabilities.orderedParts = orderedParts;
+            capabilities.maxSingleShotSize = maxSingleShotSize;
+            return capabilities;
+        }
+    }
+}
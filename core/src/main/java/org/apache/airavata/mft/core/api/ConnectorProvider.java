@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Provides the connectors and the metadata collector of a storage type. Transports list their providers in
+ * META-INF/services/org.apache.airavata.mft.core.api.ConnectorProvider and the agent discovers them from the classpath,
+ * so a new transport needs no change in the core and an agent only ships the transports a site uses.
+ *
+ * Providers are created once when the transports are discovered, while the factories are only requested when the
+ * storage type is first used. Connector classes should only be referenced from the factories so the classes of a
+ * transport are not loaded until a transfer needs them.
+ */
+public interface ConnectorProvider {
+
+    /**
+     * @return storage type of the requests handled by the connectors. Eg: S3
+     */
+    public String getStorageType();
+
+    default Optional<Supplier<IncomingStreamingConnector>> getIncomingStreamingConnector() {
+        return Optional.empty();
+    }
+
+    default Optional<Supplier<OutgoingStreamingConnector>> getOutgoingStreamingConnector() {
+        return Optional.empty();
+    }
+
+    default Optional<Supplier<IncomingChunkedConnector>> getIncomingChunkedConnector() {
+        return Optional.empty();
+    }
+
+    default Optional<Supplier<OutgoingChunkedConnector>> getOutgoingChunkedConnector() {
+        return Optional.empty();
+    }
+
+    default Optional<Supplier<MetadataCollector>> getMetadataCollector() {
+        return Optional.empty();
+    }
+}
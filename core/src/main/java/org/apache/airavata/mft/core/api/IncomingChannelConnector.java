@@ -0,0 +1,30 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A source that exposes its bytes as a channel. When both sides of a streaming transfer are channel connectors the
+ * agent copies through direct buffers, or with {@link java.nio.channels.FileChannel#transferTo} when the source is a
+ * file, instead of through heap arrays
+ */
+public interface IncomingChannelConnector extends BasicConnector {
+    public ReadableByteChannel fetchReadableChannel() throws Exception;
+    public ReadableByteChannel fetchReadableChannel(String childPath) throws Exception;
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link IncomingChunkedConnector} that reads at a position of the file into a caller provided buffer. When both
+ * sides of a chunked transfer are positional connectors, chunks are moved through pooled direct buffers without a
+ * stream per chunk. Reads of different positions may run concurrently
+ */
+public interface PositionalIncomingConnector extends IncomingChunkedConnector {
+
+    /**
+     * Reads up to the remaining bytes of the buffer starting at the given position of the file
+     *
+     * @return number of bytes read or -1 if the position is at or past the end of the file
+     */
+    public int read(ByteBuffer dst, long position) throws Exception;
+}
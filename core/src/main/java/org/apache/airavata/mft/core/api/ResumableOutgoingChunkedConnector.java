@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+import java.util.List;
+
+/**
+ * An {@link OutgoingChunkedConnector} that can continue an upload session started by an earlier attempt of the same
+ * transfer, so that chunks which were already uploaded do not need to be moved again
+ */
+public interface ResumableOutgoingChunkedConnector extends OutgoingChunkedConnector {
+
+    /**
+     * Id of the remote upload session (Eg: S3 multipart upload id) chunks are uploaded into. Starts a new session if
+     * one is not started or resumed yet
+     *
+     * @return upload session id. Empty string if the storage does not have a notion of upload sessions
+     * @throws Exception if the session can not be started
+     */
+    public String getUploadSessionId() throws Exception;
+
+    /**
+     * Tag the storage assigned to an uploaded chunk (Eg: part ETag)
+     *
+     * @param chunkId id of an uploaded chunk
+     * @return tag of the chunk or null if the chunk is not uploaded through this connector
+     */
+    public String getChunkTag(int chunkId);
+
+    /**
+     * Continues an existing upload session instead of starting a new one. Should be called after init and before
+     * uploading any chunk
+     *
+     * @param uploadSessionId id returned by {@link #getUploadSessionId()} in the earlier attempt
+     * @param uploadedChunks chunks already uploaded into the session
+     * @return true if the session was resumed, false if it no longer exists on the storage
+     * @throws Exception if the storage can not be reached
+     */
+    public boolean resumeUploadSession(String uploadSessionId, List<UploadedChunk> uploadedChunks) throws Exception;
+}
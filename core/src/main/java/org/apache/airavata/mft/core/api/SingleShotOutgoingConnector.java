@@ -0,0 +1,31 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+import java.io.InputStream;
+
+/**
+ * An {@link OutgoingStreamingConnector} that can write a whole object of a known size with a single request. Small
+ * objects are cheaper to write this way than through an upload session that needs requests to open and to complete it.
+ * The largest object written this way is given by {@link ConnectorCapabilities#getMaxSingleShotSize()}
+ */
+public interface SingleShotOutgoingConnector extends OutgoingStreamingConnector {
+
+    public void uploadObject(InputStream inputStream, long length) throws Exception;
+    public void uploadObject(String childPath, InputStream inputStream, long length) throws Exception;
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core.api;
+
+public class UploadedChunk {
+
+    private final int chunkId;
+    private final long startByte;
+    private final long endByte;
+    private final String tag;
+
+    public UploadedChunk(int chunkId, long startByte, long endByte, String tag) {
+        this.chunkId = chunkId;
+        this.startByte = startByte;
+        this.endByte = endByte;
+        this.tag = tag;
+    }
+
+    public int getChunkId() {
+        return chunkId;
+    }
+
+    public long getStartByte() {
+        return startByte;
+    }
+
+    public long getEndByte() {
+        return endByte;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.core;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Copies bytes through the buffer with bulk writes and reads of sizes that do not divide the buffer size, so copies
+ * wrap around the end of the ring
+ */
+public class CircularStreamingBufferBulkTest {
+
+    public static void main(String args[]) throws Exception {
+        final CircularStreamingBuffer sb = new CircularStreamingBuffer(4096);
+
+        byte[] sourceBytes = new byte[20000000];
+        new Random(42).nextBytes(sourceBytes);
+        byte[] destBytes = new byte[sourceBytes.length];
+
+        Thread writeThread = new Thread(() -> {
+            try (OutputStream os = sb.getOutputStream()) {
+                int written = 0;
+                while (written < sourceBytes.length) {
+                    int len = Math.min(1500, sourceBytes.length - written);
+                    os.write(sourceBytes, written, len);
+                    written += len;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+
+        writeThread.start();
+        long start = System.nanoTime();
+
+        InputStream is = sb.getInputStream();
+        int read = 0;
+        int len;
+        while ((len = is.read(destBytes, read, Math.min(3001, destBytes.length - read))) > 0) {
+            read += len;
+        }
+        writeThread.join();
+        long end = System.nanoTime();
+
+        System.out.println("Copied " + read + " bytes - time " + (end - start) / 1000000);
+        System.out.println("Equal " + Arrays.equals(sourceBytes, destBytes));
+    }
+}
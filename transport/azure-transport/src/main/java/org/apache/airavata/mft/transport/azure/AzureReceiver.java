@@ -23,6 +23,7 @@ import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
 import com.azure.storage.blob.specialized.BlobInputStream;
 import org.apache.airavata.mft.common.AuthToken;
+import org.apache.airavata.mft.core.BufferPool;
 import org.apache.airavata.mft.core.ConnectorContext;
 import org.apache.airavata.mft.core.api.Connector;
 import org.apache.airavata.mft.credential.stubs.azure.AzureSecret;
@@ -100,28 +101,8 @@ public class AzureReceiver implements Connector {
 
         long fileSize = context.getMetadata().getResourceSize();
 
-        byte[] buf = new byte[1024];
-        while (true) {
-            int bufSize = 0;
-
-            if (buf.length < fileSize) {
-                bufSize = buf.length;
-            } else {
-                bufSize = (int) fileSize;
-            }
-            bufSize = blobInputStream.read(buf, 0, bufSize);
-
-            if (bufSize < 0) {
-                break;
-            }
-
-            streamOs.write(buf, 0, bufSize);
-            streamOs.flush();
-
-            fileSize -= bufSize;
-            if (fileSize == 0L)
-                break;
-        }
+        BufferPool.getDefault().copy(blobInputStream, streamOs, fileSize, "AZURE");
+        streamOs.flush();
 
         streamOs.close();
         logger.info("Completed azure receive for remote server for transfer {}", context.getTransferId());
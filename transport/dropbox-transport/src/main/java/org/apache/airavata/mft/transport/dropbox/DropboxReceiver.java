@@ -20,6 +20,7 @@ package org.apache.airavata.mft.transport.dropbox;
 import com.dropbox.core.DbxRequestConfig;
 import com.dropbox.core.v2.DbxClientV2;
 import org.apache.airavata.mft.common.AuthToken;
+import org.apache.airavata.mft.core.BufferPool;
 import org.apache.airavata.mft.core.ConnectorContext;
 import org.apache.airavata.mft.core.api.Connector;
 import org.apache.airavata.mft.credential.stubs.dropbox.DropboxSecret;
@@ -86,28 +87,8 @@ public class DropboxReceiver implements Connector {
         int read;
         long bytes = 0;
         long fileSize = context.getMetadata().getResourceSize();
-        byte[] buf = new byte[1024];
-        while (true) {
-            int bufSize = 0;
-
-            if (buf.length < fileSize) {
-                bufSize = buf.length;
-            } else {
-                bufSize = (int) fileSize;
-            }
-            bufSize = inputStream.read(buf, 0, bufSize);
-
-            if (bufSize < 0) {
-                break;
-            }
-
-            os.write(buf, 0, bufSize);
-            os.flush();
-
-            fileSize -= bufSize;
-            if (fileSize == 0L)
-                break;
-        }
+        BufferPool.getDefault().copy(inputStream, os, fileSize, "DROPBOX");
+        os.flush();
 
         os.close();
 
@@ -18,6 +18,7 @@
 package org.apache.airavata.mft.transport.ftp;
 
 import org.apache.airavata.mft.common.AuthToken;
+import org.apache.airavata.mft.core.BufferPool;
 import org.apache.airavata.mft.core.ConnectorContext;
 import org.apache.airavata.mft.core.api.Connector;
 import org.apache.airavata.mft.credential.stubs.ftp.FTPSecret;
@@ -92,28 +93,8 @@ public class FTPReceiver implements Connector {
 
         long fileSize = context.getMetadata().getResourceSize();
 
-        byte[] buf = new byte[1024];
-        while (true) {
-            int bufSize;
-
-            if (buf.length < fileSize) {
-                bufSize = buf.length;
-            } else {
-                bufSize = (int) fileSize;
-            }
-            bufSize = inputStream.read(buf, 0, bufSize);
-
-            if (bufSize < 0) {
-                break;
-            }
-
-            streamOs.write(buf, 0, bufSize);
-            streamOs.flush();
-
-            fileSize -= bufSize;
-            if (fileSize == 0L)
-                break;
-        }
+        BufferPool.getDefault().copy(inputStream, streamOs, fileSize, "FTP");
+        streamOs.flush();
 
         inputStream.close();
         streamOs.close();
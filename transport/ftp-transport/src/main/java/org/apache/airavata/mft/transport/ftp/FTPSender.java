@@ -18,6 +18,7 @@
 package org.apache.airavata.mft.transport.ftp;
 
 import org.apache.airavata.mft.common.AuthToken;
+import org.apache.airavata.mft.core.BufferPool;
 import org.apache.airavata.mft.core.ConnectorContext;
 import org.apache.airavata.mft.core.api.Connector;
 import org.apache.airavata.mft.credential.stubs.ftp.FTPSecret;
@@ -93,28 +94,8 @@ public class FTPSender implements Connector {
         long fileSize = context.getMetadata().getResourceSize();
         OutputStream outputStream = ftpClient.storeFileStream(resource.getFile().getResourcePath());
 
-        byte[] buf = new byte[1024];
-        while (true) {
-            int bufSize;
-
-            if (buf.length < fileSize) {
-                bufSize = buf.length;
-            } else {
-                bufSize = (int) fileSize;
-            }
-            bufSize = in.read(buf, 0, bufSize);
-
-            if (bufSize < 0) {
-                break;
-            }
-
-            outputStream.write(buf, 0, bufSize);
-            outputStream.flush();
-
-            fileSize -= bufSize;
-            if (fileSize == 0L)
-                break;
-        }
+        BufferPool.getDefault().copy(in, outputStream, fileSize, "FTP");
+        outputStream.flush();
 
         in.close();
         outputStream.close();
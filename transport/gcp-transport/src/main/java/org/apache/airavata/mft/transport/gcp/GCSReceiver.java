@@ -25,6 +25,7 @@ import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.storage.Storage;
 import com.google.api.services.storage.StorageScopes;
 import org.apache.airavata.mft.common.AuthToken;
+import org.apache.airavata.mft.core.BufferPool;
 import org.apache.airavata.mft.core.ConnectorContext;
 import org.apache.airavata.mft.core.api.Connector;
 import org.apache.airavata.mft.credential.stubs.gcs.GCSSecret;
@@ -106,28 +107,8 @@ public class GCSReceiver implements Connector {
         int read;
         long bytes = 0;
         long fileSize = context.getMetadata().getResourceSize();
-        byte[] buf = new byte[1024];
-        while (true) {
-            int bufSize = 0;
-
-            if (buf.length < fileSize) {
-                bufSize = buf.length;
-            } else {
-                bufSize = (int) fileSize;
-            }
-            bufSize = inputStream.read(buf, 0, bufSize);
-
-            if (bufSize < 0) {
-                break;
-            }
-
-            os.write(buf, 0, bufSize);
-            os.flush();
-
-            fileSize -= bufSize;
-            if (fileSize == 0L)
-                break;
-        }
+        BufferPool.getDefault().copy(inputStream, os, fileSize, "GCS");
+        os.flush();
 
         os.close();
 
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.transport.local;
+
+import org.apache.airavata.mft.core.api.ConnectorConfig;
+import org.apache.airavata.mft.resource.client.ResourceServiceClient;
+import org.apache.airavata.mft.resource.client.ResourceServiceClientBuilder;
+import org.apache.airavata.mft.resource.stubs.common.GenericResource;
+import org.apache.airavata.mft.resource.stubs.common.GenericResourceGetRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves the path of a local resource and keeps track of the file channels opened on it so they are closed when the
+ * transfer ends
+ */
+class LocalFileResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileResource.class);
+
+    private final GenericResource resource;
+    private final List<FileChannel> channels = new ArrayList<>();
+
+    LocalFileResource(ConnectorConfig cc) throws Exception {
+        try (ResourceServiceClient resourceClient = ResourceServiceClientBuilder
+                .buildClient(cc.getResourceServiceHost(), cc.getResourceServicePort())) {
+
+            resource = resourceClient.get().getGenericResource(GenericResourceGetRequest.newBuilder()
+                    .setAuthzToken(cc.getAuthToken())
+                    .setResourceId(cc.getResourceId()).build());
+        }
+
+        if (resource.getStorageCase() != GenericResource.StorageCase.LOCALSTORAGE) {
+            logger.error("Invalid storage type {} specified for resource {}", resource.getStorageCase(), cc.getResourceId());
+            throw new Exception("Invalid storage type specified for resource " + cc.getResourceId());
+        }
+    }
+
+    String getStorageId() {
+        return resource.getLocalStorage().getStorageId();
+    }
+
+    Path path(String childPath) throws IOException {
+        String resourcePath;
+        switch (resource.getResourceCase()) {
+            case FILE:
+                resourcePath = resource.getFile().getResourcePath();
+                break;
+            case DIRECTORY:
+                resourcePath = resource.getDirectory().getResourcePath();
+                break;
+            default:
+                throw new IOException("Resource was not set in resource with id " + resource.getResourceId());
+        }
+        return childPath.isEmpty() ? Paths.get(resourcePath) : Paths.get(resourcePath, childPath);
+    }
+
+    synchronized FileChannel open(String childPath, OpenOption... options) throws IOException {
+        FileChannel channel = FileChannel.open(path(childPath), options);
+        channels.add(channel);
+        return channel;
+    }
+
+    synchronized void close() {
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a channel of resource {}", resource.getResourceId(), e);
+            }
+        }
+        channels.clear();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.transport.local;
+
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
+import org.apache.airavata.mft.core.api.ConnectorConfig;
+import org.apache.airavata.mft.core.api.IncomingChannelConnector;
+import org.apache.airavata.mft.core.api.IncomingStreamingConnector;
+import org.apache.airavata.mft.core.api.PositionalIncomingConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+public class LocalIncomingConnector implements IncomingStreamingConnector, PositionalIncomingConnector,
+        IncomingChannelConnector {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalIncomingConnector.class);
+
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withRangeReads(true)
+            .build();
+
+    private LocalFileResource resource;
+
+    /*
+    Channel shared by the positional reads of the chunks. Opened again if a chunk closed it, for example by an interrupt
+     */
+    private FileChannel chunkChannel;
+    private boolean closed = false;
+
+    @Override
+    public void init(ConnectorConfig cc) throws Exception {
+        this.resource = new LocalFileResource(cc);
+    }
+
+    @Override
+    public void complete() throws Exception {
+        close();
+    }
+
+    @Override
+    public void failed() throws Exception {
+        close();
+    }
+
+    @Override
+    public InputStream fetchInputStream() throws Exception {
+        return Channels.newInputStream(fetchReadableChannel());
+    }
+
+    @Override
+    public InputStream fetchInputStream(String childPath) throws Exception {
+        return Channels.newInputStream(fetchReadableChannel(childPath));
+    }
+
+    @Override
+    public ReadableByteChannel fetchReadableChannel() throws Exception {
+        return fetchReadableChannel("");
+    }
+
+    @Override
+    public ReadableByteChannel fetchReadableChannel(String childPath) throws Exception {
+        logger.info("Reading local file {}", resource.path(childPath));
+        return resource.open(childPath, StandardOpenOption.READ);
+    }
+
+    @Override
+    public void downloadChunk(int chunkId, long startByte, long endByte, String downloadFile) throws Exception {
+        try (FileChannel target = FileChannel.open(Paths.get(downloadFile), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            FileChannel source = chunkChannel();
+            long position = startByte;
+            while (position < endByte) {
+                long n = source.transferTo(position, endByte - position, target);
+                if (n <= 0) {
+                    throw new IOException("Local file ended at " + position + " before the end of chunk " + chunkId);
+                }
+                position += n;
+            }
+        }
+    }
+
+    @Override
+    public InputStream downloadChunk(int chunkId, long startByte, long endByte) throws Exception {
+        return new InputStream() {
+            private long position = startByte;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position >= endByte) {
+                    return -1;
+                }
+                int n = chunkChannel().read(ByteBuffer.wrap(b, off, (int) Math.min(len, endByte - position)), position);
+                if (n > 0) {
+                    position += n;
+                }
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws Exception {
+        return chunkChannel().read(dst, position);
+    }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getStorageId());
+    }
+
+    private synchronized FileChannel chunkChannel() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (chunkChannel == null || !chunkChannel.isOpen()) {
+            if (chunkChannel != null) {
+                logger.warn("Channel of local file {} was closed under a chunk. Opening it again", resource.path(""));
+            }
+            chunkChannel = resource.open("", StandardOpenOption.READ);
+        }
+        return chunkChannel;
+    }
+
+    private synchronized void close() {
+        closed = true;
+        resource.close();
+    }
+}
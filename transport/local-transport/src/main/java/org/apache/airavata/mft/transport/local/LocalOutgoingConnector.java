@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.transport.local;
+
+import org.apache.airavata.mft.core.BufferPool;
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
+import org.apache.airavata.mft.core.api.ConnectorConfig;
+import org.apache.airavata.mft.core.api.OutgoingChannelConnector;
+import org.apache.airavata.mft.core.api.OutgoingStreamingConnector;
+import org.apache.airavata.mft.core.api.PositionalOutgoingConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+public class LocalOutgoingConnector implements OutgoingStreamingConnector, PositionalOutgoingConnector,
+        OutgoingChannelConnector {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalOutgoingConnector.class);
+
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .build();
+
+    private LocalFileResource resource;
+
+    /*
+    Channel shared by the positional writes of the chunks. Opened again if a chunk closed it, for example by an interrupt
+     */
+    private FileChannel chunkChannel;
+    private boolean closed = false;
+
+    @Override
+    public void init(ConnectorConfig cc) throws Exception {
+        this.resource = new LocalFileResource(cc);
+    }
+
+    @Override
+    public void complete() throws Exception {
+        synchronized (this) {
+            if (chunkChannel != null) {
+                chunkChannel().force(false);
+            }
+        }
+        close();
+    }
+
+    @Override
+    public void failed() throws Exception {
+        close();
+    }
+
+    @Override
+    public OutputStream fetchOutputStream() throws Exception {
+        return Channels.newOutputStream(fetchWritableChannel());
+    }
+
+    @Override
+    public OutputStream fetchOutputStream(String childPath) throws Exception {
+        return Channels.newOutputStream(fetchWritableChannel(childPath));
+    }
+
+    @Override
+    public WritableByteChannel fetchWritableChannel() throws Exception {
+        return fetchWritableChannel("");
+    }
+
+    @Override
+    public WritableByteChannel fetchWritableChannel(String childPath) throws Exception {
+        logger.info("Writing local file {}", resource.path(childPath));
+        return resource.open(childPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public void uploadChunk(int chunkId, long startByte, long endByte, String uploadFile) throws Exception {
+        try (FileChannel source = FileChannel.open(Paths.get(uploadFile), StandardOpenOption.READ)) {
+            FileChannel target = chunkChannel();
+            long position = startByte;
+            while (position < endByte) {
+                long n = target.transferFrom(source, position, endByte - position);
+                if (n <= 0) {
+                    throw new IOException("Chunk file " + uploadFile + " ended at " + position +
+                            " before the end of chunk " + chunkId);
+                }
+                position += n;
+            }
+        }
+    }
+
+    @Override
+    public void uploadChunk(int chunkId, long startByte, long endByte, InputStream inputStream) throws Exception {
+        BufferPool bufferPool = BufferPool.getDefault();
+        byte[] buffer = bufferPool.acquire(bufferPool.getCopySize("LOCAL"));
+        try {
+            long position = startByte;
+            int n;
+            while (position < endByte && (n = inputStream.read(buffer, 0,
+                    (int) Math.min(buffer.length, endByte - position))) != -1) {
+                ByteBuffer src = ByteBuffer.wrap(buffer, 0, n);
+                while (src.hasRemaining()) {
+                    position += write(src, position);
+                }
+            }
+            if (position != endByte) {
+                throw new IOException("Chunk " + chunkId + " ended at " + position + " before " + endByte);
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws Exception {
+        return chunkChannel().write(src, position);
+    }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getStorageId());
+    }
+
+    private synchronized FileChannel chunkChannel() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (chunkChannel == null) {
+            chunkChannel = resource.open("", StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } else if (!chunkChannel.isOpen()) {
+            // Not truncated again as the file already holds the chunks written before
+            logger.warn("Channel of local file {} was closed under a chunk. Opening it again", resource.path(""));
+            chunkChannel = resource.open("", StandardOpenOption.WRITE);
+        }
+        return chunkChannel;
+    }
+
+    private synchronized void close() {
+        closed = true;
+        resource.close();
+    }
+}
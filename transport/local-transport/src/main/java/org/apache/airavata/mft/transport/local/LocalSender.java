@@ -18,6 +18,7 @@
 package org.apache.airavata.mft.transport.local;
 
 import org.apache.airavata.mft.common.AuthToken;
+import org.apache.airavata.mft.core.BufferPool;
 import org.apache.airavata.mft.core.ConnectorContext;
 import org.apache.airavata.mft.core.api.Connector;
 import org.apache.airavata.mft.resource.client.ResourceServiceClient;
@@ -83,28 +84,8 @@ public class LocalSender implements Connector {
         long fileSize = context.getMetadata().getResourceSize();
         OutputStream fos = new FileOutputStream(resource.getFile().getResourcePath());
 
-        byte[] buf = new byte[1024];
-        while (true) {
-            int bufSize = 0;
-
-            if (buf.length < fileSize) {
-                bufSize = buf.length;
-            } else {
-                bufSize = (int) fileSize;
-            }
-            bufSize = in.read(buf, 0, bufSize);
-
-            if (bufSize < 0) {
-                break;
-            }
-
-            fos.write(buf, 0, bufSize);
-            fos.flush();
-
-            fileSize -= bufSize;
-            if (fileSize == 0L)
-                break;
-        }
+        BufferPool.getDefault().copy(in, fos, fileSize, "LOCAL");
+        fos.flush();
 
         in.close();
         fos.close();
@@ -17,6 +17,7 @@
 
 package org.apache.airavata.mft.transport.odata;
 
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
 import org.apache.airavata.mft.core.api.IncomingStreamingConnector;
 import org.apache.airavata.mft.credential.stubs.odata.ODataSecret;
@@ -41,11 +42,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
+import java.util.Optional;
 
 public class ODataIncomingConnector implements IncomingStreamingConnector {
 
     private static final Logger logger = LoggerFactory.getLogger(ODataIncomingConnector.class);
 
+    // Products are downloaded as a single stream
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withPreferredConcurrency(1)
+            .build();
+
     private CloseableHttpResponse response;
     CloseableHttpClient client;
 
@@ -118,4 +125,14 @@ public class ODataIncomingConnector implements IncomingStreamingConnector {
     public void failed() throws Exception {
 
     }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(odataStorage.getStorageId());
+    }
 }
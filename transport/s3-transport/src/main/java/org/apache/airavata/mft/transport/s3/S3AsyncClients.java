@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.transport.s3;
+
+import org.apache.airavata.mft.credential.stubs.s3.S3Secret;
+import org.apache.airavata.mft.resource.stubs.s3.storage.S3Storage;
+import org.reactivestreams.FlowAdapters;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Non blocking S3 clients used to move chunks without holding a thread while the requests are outstanding. All the
+ * clients share one Netty event loop group and connection pool
+ */
+final class S3AsyncClients {
+
+    /*
+    Event loop threads shared by the non blocking clients of all the transfers
+     */
+    private static final int EVENT_LOOP_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    /*
+    Shared by all the clients so every connector reuses the same event loop group and connection pool instead of
+    starting its own. Clients built with a provided http client leave it open when they are closed
+     */
+    private static volatile SdkAsyncHttpClient httpClient;
+
+    private S3AsyncClients() {
+    }
+
+    private static SdkAsyncHttpClient httpClient() {
+        SdkAsyncHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (S3AsyncClients.class) {
+                client = httpClient;
+                if (client == null) {
+                    client = NettyNioAsyncHttpClient.builder()
+                            .eventLoopGroup(SdkEventLoopGroup.builder().numberOfThreads(EVENT_LOOP_THREADS).build())
+                            .build();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    static S3AsyncClient create(S3Storage s3Storage, S3Secret s3Secret) throws Exception {
+        AwsCredentials awsCreds;
+        if (s3Secret.getSessionToken() == null || s3Secret.getSessionToken().equals("")) {
+            awsCreds = AwsBasicCredentials.create(s3Secret.getAccessKey(), s3Secret.getSecretKey());
+        } else {
+            awsCreds = AwsSessionCredentials.create(s3Secret.getAccessKey(),
+                    s3Secret.getSecretKey(),
+                    s3Secret.getSessionToken());
+        }
+
+        return S3AsyncClient.builder()
+                .region(Region.of(s3Storage.getRegion())).endpointOverride(new URI(s3Storage.getEndpoint()))
+                .credentialsProvider(() -> awsCreds)
+                .httpClient(httpClient())
+                .build();
+    }
+
+    /**
+     * @return a future of the response with the throttling errors of S3 translated
+     */
+    static <T> CompletableFuture<T> translated(CompletableFuture<T> response) {
+        return response.handle((result, error) -> error == null ? CompletableFuture.completedFuture(result) :
+                CompletableFuture.<T>failedFuture(S3Throttling.translate(error))).thenCompose(f -> f);
+    }
+
+    /**
+     * @return a transformer completing with the body of the object as soon as the response arrives. The body is
+     * pulled from S3 as the subscriber requests it
+     */
+    static AsyncResponseTransformer<GetObjectResponse, Flow.Publisher<ByteBuffer>> toPublisher() {
+        return new AsyncResponseTransformer<>() {
+
+            private volatile CompletableFuture<Flow.Publisher<ByteBuffer>> body;
+
+            @Override
+            public CompletableFuture<Flow.Publisher<ByteBuffer>> prepare() {
+                body = new CompletableFuture<>();
+                return body;
+            }
+
+            @Override
+            public void onResponse(GetObjectResponse response) {
+            }
+
+            @Override
+            public void onStream(SdkPublisher<ByteBuffer> publisher) {
+                body.complete(FlowAdapters.toFlowPublisher(publisher));
+            }
+
+            @Override
+            public void exceptionOccurred(Throwable error) {
+                // Errors after the body was handed over are signalled to its subscriber
+                body.completeExceptionally(error);
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package org.apache.airavata.mft.transport.s3;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
@@ -8,9 +9,10 @@ import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.util.IOUtils;
+import org.apache.airavata.mft.core.api.AsyncIncomingChunkedConnector;
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
 import org.apache.airavata.mft.core.api.IncomingChunkedConnector;
 import org.apache.airavata.mft.core.api.IncomingStreamingConnector;
@@ -25,17 +27,31 @@ import org.apache.airavata.mft.secret.client.SecretServiceClient;
 import org.apache.airavata.mft.secret.client.SecretServiceClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 
-public class S3IncomingConnector implements IncomingChunkedConnector, IncomingStreamingConnector {
+public class S3IncomingConnector implements IncomingChunkedConnector, IncomingStreamingConnector,
+        AsyncIncomingChunkedConnector {
 
     private static final Logger logger = LoggerFactory.getLogger(S3IncomingConnector.class);
 
+    // Objects are read with ranged GETs
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withRangeReads(true)
+            .build();
+
     private GenericResource resource;
     private AmazonS3 s3Client;
+    private S3Secret s3Secret;
+    // Created on the first non blocking request
+    private S3AsyncClient asyncClient;
 
     @Override
     public void init(ConnectorConfig cc) throws Exception {
@@ -54,8 +70,6 @@ public class S3IncomingConnector implements IncomingChunkedConnector, IncomingSt
 
         S3Storage s3Storage = resource.getS3Storage();
 
-        S3Secret s3Secret;
-
         try (SecretServiceClient secretClient = SecretServiceClientBuilder.buildClient(
                 cc.getSecretServiceHost(), cc.getSecretServicePort())) {
 
@@ -98,7 +112,11 @@ public class S3IncomingConnector implements IncomingChunkedConnector, IncomingSt
         GetObjectRequest rangeObjectRequest = new GetObjectRequest(resource.getS3Storage().getBucketName(),
                 resource.getFile().getResourcePath());
         rangeObjectRequest.setRange(startByte, endByte - 1);
-        ObjectMetadata objectMetadata = s3Client.getObject(rangeObjectRequest, new File(downloadFile));
+        try {
+            s3Client.getObject(rangeObjectRequest, new File(downloadFile));
+        } catch (AmazonServiceException e) {
+            throw S3Throttling.translate(e);
+        }
         logger.debug("Downloaded S3 chunk to path {} for resource id {}", downloadFile, resource.getResourceId());
     }
 
@@ -108,17 +126,60 @@ public class S3IncomingConnector implements IncomingChunkedConnector, IncomingSt
                 resource.getFile().getResourcePath());
         rangeObjectRequest.setRange(startByte, endByte - 1);
         logger.debug("Fetching input stream for chunk {} in resource {}", chunkId, resource.getResourceId());
-        S3Object object = s3Client.getObject(rangeObjectRequest);
-        return object.getObjectContent();
+        try {
+            S3Object object = s3Client.getObject(rangeObjectRequest);
+            return object.getObjectContent();
+        } catch (AmazonServiceException e) {
+            throw S3Throttling.translate(e);
+        }
     }
 
     @Override
-    public void complete() throws Exception {
+    public CompletableFuture<Flow.Publisher<ByteBuffer>> downloadChunkAsync(int chunkId, long startByte, long endByte) {
+        logger.debug("Fetching publisher for chunk {} in resource {}", chunkId, resource.getResourceId());
+        try {
+            return S3AsyncClients.translated(asyncClient().getObject(
+                    software.amazon.awssdk.services.s3.model.GetObjectRequest.builder()
+                            .bucket(resource.getS3Storage().getBucketName())
+                            .key(resource.getFile().getResourcePath())
+                            .range("bytes=" + startByte + "-" + (endByte - 1)).build(),
+                    S3AsyncClients.toPublisher()));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private synchronized S3AsyncClient asyncClient() throws Exception {
+        if (asyncClient == null) {
+            asyncClient = S3AsyncClients.create(resource.getS3Storage(), s3Secret);
+        }
+        return asyncClient;
+    }
 
+    private synchronized void closeAsyncClient() {
+        if (asyncClient != null) {
+            asyncClient.close();
+            asyncClient = null;
+        }
+    }
+
+    @Override
+    public void complete() throws Exception {
+        closeAsyncClient();
     }
 
     @Override
     public void failed() throws Exception {
+        closeAsyncClient();
+    }
 
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getS3Storage().getStorageId());
     }
 }
@@ -1,5 +1,6 @@
 package org.apache.airavata.mft.transport.s3;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
@@ -8,8 +9,12 @@ import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.*;
+import org.apache.airavata.mft.core.api.AsyncOutgoingChunkedConnector;
+import org.apache.airavata.mft.core.api.ChecksumReportingConnector;
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
-import org.apache.airavata.mft.core.api.OutgoingChunkedConnector;
+import org.apache.airavata.mft.core.api.ResumableOutgoingChunkedConnector;
+import org.apache.airavata.mft.core.api.UploadedChunk;
 import org.apache.airavata.mft.credential.stubs.s3.S3Secret;
 import org.apache.airavata.mft.credential.stubs.s3.S3SecretGetRequest;
 import org.apache.airavata.mft.resource.client.ResourceServiceClient;
@@ -19,25 +24,46 @@ import org.apache.airavata.mft.resource.stubs.common.GenericResourceGetRequest;
 import org.apache.airavata.mft.resource.stubs.s3.storage.S3Storage;
 import org.apache.airavata.mft.secret.client.SecretServiceClient;
 import org.apache.airavata.mft.secret.client.SecretServiceClientBuilder;
+import org.reactivestreams.FlowAdapters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 
 import java.io.File;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
 
-public class S3OutgoingConnector implements OutgoingChunkedConnector {
+public class S3OutgoingConnector implements ResumableOutgoingChunkedConnector, ChecksumReportingConnector,
+        AsyncOutgoingChunkedConnector {
 
     private static final Logger logger = LoggerFactory.getLogger(S3OutgoingConnector.class);
 
+    // https://docs.aws.amazon.com/AmazonS3/latest/userguide/qfacts.html
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withMinPartSize(5 * 1024 * 1024L)
+            .withMaxPartSize(5 * 1024 * 1024 * 1024L)
+            .withMaxPartCount(10000)
+            .withServerSideCopy(true)
+            .build();
+
     private GenericResource resource;
     private AmazonS3 s3Client;
+    private S3Secret s3Secret;
+    // Created on the first non blocking request
+    private S3AsyncClient asyncClient;
 
-    InitiateMultipartUploadResult initResponse;
-    List<PartETag> partETags = Collections.synchronizedList(new ArrayList<>());
+    private volatile String uploadId;
+    private final Map<Integer, PartETag> partETags = new ConcurrentHashMap<>();
+    private volatile String objectETag;
 
     @Override
     public void init(ConnectorConfig cc) throws Exception {
@@ -56,8 +82,6 @@ public class S3OutgoingConnector implements OutgoingChunkedConnector {
 
         S3Storage s3Storage = resource.getS3Storage();
 
-        S3Secret s3Secret;
-
         try (SecretServiceClient secretClient = SecretServiceClientBuilder.buildClient(
                 cc.getSecretServiceHost(), cc.getSecretServicePort())) {
 
@@ -80,12 +104,51 @@ public class S3OutgoingConnector implements OutgoingChunkedConnector {
                     .withCredentials(new AWSStaticCredentialsProvider(awsCreds))
                     .build();
         }
+    }
 
-        InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(resource.getS3Storage().getBucketName(),
-                resource.getFile().getResourcePath());
-        initResponse = s3Client.initiateMultipartUpload(initRequest);
-        logger.info("Initialized multipart upload for file {} in bucket {}",
-                resource.getFile().getResourcePath(), resource.getS3Storage().getBucketName());
+    @Override
+    public synchronized String getUploadSessionId() throws Exception {
+        if (uploadId == null) {
+            InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(resource.getS3Storage().getBucketName(),
+                    resource.getFile().getResourcePath());
+            try {
+                uploadId = s3Client.initiateMultipartUpload(initRequest).getUploadId();
+            } catch (AmazonServiceException e) {
+                throw S3Throttling.translate(e);
+            }
+            logger.info("Initialized multipart upload for file {} in bucket {}",
+                    resource.getFile().getResourcePath(), resource.getS3Storage().getBucketName());
+        }
+        return uploadId;
+    }
+
+    @Override
+    public String getChunkTag(int chunkId) {
+        PartETag partETag = partETags.get(chunkId + 1);
+        return partETag == null ? null : partETag.getETag();
+    }
+
+    @Override
+    public synchronized boolean resumeUploadSession(String uploadSessionId, List<UploadedChunk> uploadedChunks) throws Exception {
+        try {
+            s3Client.listParts(new ListPartsRequest(resource.getS3Storage().getBucketName(),
+                    resource.getFile().getResourcePath(), uploadSessionId).withMaxParts(1));
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                logger.warn("Multipart upload {} for file {} no longer exists", uploadSessionId,
+                        resource.getFile().getResourcePath());
+                return false;
+            }
+            throw e;
+        }
+
+        uploadId = uploadSessionId;
+        for (UploadedChunk chunk : uploadedChunks) {
+            partETags.put(chunk.getChunkId() + 1, new PartETag(chunk.getChunkId() + 1, chunk.getTag()));
+        }
+        logger.info("Resumed multipart upload {} for file {} with {} uploaded parts", uploadSessionId,
+                resource.getFile().getResourcePath(), uploadedChunks.size());
+        return true;
     }
 
     @Override
@@ -94,14 +157,19 @@ public class S3OutgoingConnector implements OutgoingChunkedConnector {
         UploadPartRequest uploadRequest = new UploadPartRequest()
                 .withBucketName(resource.getS3Storage().getBucketName())
                 .withKey(resource.getFile().getResourcePath())
-                .withUploadId(initResponse.getUploadId())
+                .withUploadId(getUploadSessionId())
                 .withPartNumber(chunkId + 1)
                 .withFileOffset(0)
                 .withFile(file)
                 .withPartSize(file.length());
 
-        UploadPartResult uploadResult = s3Client.uploadPart(uploadRequest);
-        this.partETags.add(uploadResult.getPartETag());
+        UploadPartResult uploadResult;
+        try {
+            uploadResult = s3Client.uploadPart(uploadRequest);
+        } catch (AmazonServiceException e) {
+            throw S3Throttling.translate(e);
+        }
+        this.partETags.put(uploadResult.getPartNumber(), uploadResult.getPartETag());
         logger.debug("Uploaded S3 chunk to path {} for resource id {}", uploadFile, resource.getResourceId());
     }
 
@@ -110,29 +178,103 @@ public class S3OutgoingConnector implements OutgoingChunkedConnector {
         UploadPartRequest uploadRequest = new UploadPartRequest()
                 .withBucketName(resource.getS3Storage().getBucketName())
                 .withKey(resource.getFile().getResourcePath())
-                .withUploadId(initResponse.getUploadId())
+                .withUploadId(getUploadSessionId())
                 .withPartNumber(chunkId + 1)
                 .withFileOffset(0)
                 .withInputStream(inputStream)
                 .withPartSize(endByte - startByte);
 
-        UploadPartResult uploadResult = s3Client.uploadPart(uploadRequest);
+        UploadPartResult uploadResult;
+        try {
+            uploadResult = s3Client.uploadPart(uploadRequest);
+        } catch (AmazonServiceException e) {
+            throw S3Throttling.translate(e);
+        }
         inputStream.close();
-        this.partETags.add(uploadResult.getPartETag());
+        this.partETags.put(uploadResult.getPartNumber(), uploadResult.getPartETag());
         logger.debug("Uploaded S3 chunk {} for resource id {} using stream", chunkId, resource.getResourceId());
     }
 
+    @Override
+    public CompletableFuture<Void> uploadChunkAsync(int chunkId, long startByte, long endByte,
+                                                    Flow.Publisher<ByteBuffer> data) {
+        try {
+            software.amazon.awssdk.services.s3.model.UploadPartRequest uploadRequest =
+                    software.amazon.awssdk.services.s3.model.UploadPartRequest.builder()
+                            .bucket(resource.getS3Storage().getBucketName())
+                            .key(resource.getFile().getResourcePath())
+                            .uploadId(getUploadSessionId())
+                            .partNumber(chunkId + 1)
+                            .contentLength(endByte - startByte).build();
+
+            return S3AsyncClients.translated(asyncClient().uploadPart(uploadRequest,
+                    AsyncRequestBody.fromPublisher(FlowAdapters.toPublisher(data)))).thenAccept(response -> {
+                partETags.put(chunkId + 1, new PartETag(chunkId + 1, response.eTag()));
+                logger.debug("Uploaded S3 chunk {} for resource id {} using publisher", chunkId,
+                        resource.getResourceId());
+            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private synchronized S3AsyncClient asyncClient() throws Exception {
+        if (asyncClient == null) {
+            asyncClient = S3AsyncClients.create(resource.getS3Storage(), s3Secret);
+        }
+        return asyncClient;
+    }
+
+    private synchronized void closeAsyncClient() {
+        if (asyncClient != null) {
+            asyncClient.close();
+            asyncClient = null;
+        }
+    }
+
     @Override
     public void complete() throws Exception {
+        closeAsyncClient();
+        List<PartETag> sortedETags = new ArrayList<>(partETags.values());
+        sortedETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
         CompleteMultipartUploadRequest compRequest = new CompleteMultipartUploadRequest(resource.getS3Storage().getBucketName(),
-                resource.getFile().getResourcePath(), initResponse.getUploadId(), partETags);
-        s3Client.completeMultipartUpload(compRequest);
+                resource.getFile().getResourcePath(), getUploadSessionId(), sortedETags);
+        CompleteMultipartUploadResult result = s3Client.completeMultipartUpload(compRequest);
+        // The ETag of an object encrypted with SSE-KMS or SSE-C is not derived from the MD5s of its parts
+        String sseAlgorithm = result.getSSEAlgorithm();
+        if (result.getSSECustomerAlgorithm() != null || (sseAlgorithm != null && sseAlgorithm.startsWith("aws:kms"))) {
+            logger.info("Not reporting the ETag of file {} as a checksum as it is encrypted with {}",
+                    resource.getFile().getResourcePath(),
+                    result.getSSECustomerAlgorithm() != null ? "SSE-C" : sseAlgorithm);
+        } else {
+            objectETag = result.getETag();
+        }
         logger.info("Completing the upload for file {} in bucket {}", resource.getFile().getResourcePath(),
                 resource.getS3Storage().getBucketName());
     }
 
     @Override
     public void failed() throws Exception {
+        closeAsyncClient();
+    }
 
+    @Override
+    public String getChecksumAlgorithm() {
+        return MULTIPART_ETAG;
+    }
+
+    @Override
+    public Optional<String> getUploadedChecksum() {
+        return Optional.ofNullable(objectETag);
+    }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getS3Storage().getStorageId());
     }
 }
@@ -21,8 +21,9 @@ import edu.colorado.cires.cmg.s3out.AwsS3ClientMultipartUpload;
 import edu.colorado.cires.cmg.s3out.MultipartUploadRequest;
 import edu.colorado.cires.cmg.s3out.S3ClientMultipartUpload;
 import edu.colorado.cires.cmg.s3out.S3OutputStream;
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
-import org.apache.airavata.mft.core.api.OutgoingStreamingConnector;
+import org.apache.airavata.mft.core.api.SingleShotOutgoingConnector;
 import org.apache.airavata.mft.credential.stubs.s3.S3Secret;
 import org.apache.airavata.mft.credential.stubs.s3.S3SecretGetRequest;
 import org.apache.airavata.mft.resource.client.ResourceServiceClient;
@@ -37,23 +38,34 @@ import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.Optional;
 
 /** NOTE: This implementation uses 3rd party buffering of output stream
  * https://github.com/CI-CMG/aws-s3-outputstream until Amazon SDK supports
  * https://github.com/aws/aws-sdk-java-v2/issues/3128 **/
 
-public class S3OutgoingStreamingConnector implements OutgoingStreamingConnector {
+public class S3OutgoingStreamingConnector implements SingleShotOutgoingConnector {
+
+    // https://docs.aws.amazon.com/AmazonS3/latest/userguide/upload-objects.html
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withMaxSingleShotSize(5 * 1024 * 1024 * 1024L)
+            .withServerSideCopy(true)
+            .build();
 
     private static final Logger logger = LoggerFactory.getLogger(S3OutgoingStreamingConnector.class);
 
     private GenericResource resource;
     private S3OutputStream s3OutputStream;
     private S3ClientMultipartUpload s3;
+    private S3Client s3Client;
 
     @Override
     public void init(ConnectorConfig cc) throws Exception {
@@ -90,7 +102,7 @@ public class S3OutgoingStreamingConnector implements OutgoingStreamingConnector
                         s3Secret.getSessionToken());
             }
 
-            S3Client s3Client = S3Client.builder()
+            this.s3Client = S3Client.builder()
                     .region(Region.of(s3Storage.getRegion())).endpointOverride(new URI(s3Storage.getEndpoint()))
                     .credentialsProvider(() -> awsCreds)
                     .build();
@@ -142,4 +154,34 @@ public class S3OutgoingStreamingConnector implements OutgoingStreamingConnector
                 resource.getFile().getResourcePath(),  childPath, resource.getS3Storage().getBucketName());
         return this.s3OutputStream;
     }
+
+    @Override
+    public void uploadObject(InputStream inputStream, long length) throws Exception {
+        putObject(resource.getFile().getResourcePath(), inputStream, length);
+    }
+
+    @Override
+    public void uploadObject(String childPath, InputStream inputStream, long length) throws Exception {
+        putObject(resource.getFile().getResourcePath() + "/" + childPath, inputStream, length);
+    }
+
+    private void putObject(String key, InputStream inputStream, long length) {
+        s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(resource.getS3Storage().getBucketName())
+                        .key(key)
+                        .contentLength(length).build(),
+                RequestBody.fromInputStream(inputStream, length));
+        logger.info("Uploaded file {} of {} bytes in bucket {} with a single request", key, length,
+                resource.getS3Storage().getBucketName());
+    }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getS3Storage().getStorageId());
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.airavata.mft.transport.s3;
+
+import com.amazonaws.AmazonServiceException;
+import org.apache.airavata.mft.core.EndpointThrottledException;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Translates the throttling responses of S3 into {@link EndpointThrottledException} so the agent slows down the
+ * requests to the bucket instead of failing
+ */
+final class S3Throttling {
+
+    private static final Set<String> THROTTLING_CODES = Set.of("SlowDown", "Throttling", "ThrottlingException",
+            "RequestLimitExceeded", "TooManyRequests");
+
+    private S3Throttling() {
+    }
+
+    static Exception translate(AmazonServiceException e) {
+        if (e.getStatusCode() != 503 && e.getStatusCode() != 429 && !THROTTLING_CODES.contains(e.getErrorCode())) {
+            return e;
+        }
+        return new EndpointThrottledException("S3 throttled the request with " + e.getErrorCode(),
+                retryAfterMillis(e.getHttpHeaders()), e);
+    }
+
+    /**
+     * Translates the failure of a request of the non blocking client
+     */
+    static Throwable translate(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!(cause instanceof AwsServiceException)) {
+            return cause;
+        }
+        AwsServiceException e = (AwsServiceException) cause;
+        String errorCode = e.awsErrorDetails() == null ? null : e.awsErrorDetails().errorCode();
+        if (e.statusCode() != 503 && e.statusCode() != 429 && !THROTTLING_CODES.contains(errorCode)) {
+            return e;
+        }
+        List<String> retryAfter = e.awsErrorDetails() == null || e.awsErrorDetails().sdkHttpResponse() == null ? null :
+                e.awsErrorDetails().sdkHttpResponse().headers().get("Retry-After");
+        return new EndpointThrottledException("S3 throttled the request with " + errorCode,
+                retryAfterMillis(retryAfter == null || retryAfter.isEmpty() ? null : retryAfter.get(0)), e);
+    }
+
+    private static long retryAfterMillis(Map<String, String> headers) {
+        return retryAfterMillis(headers == null ? null : headers.get("Retry-After"));
+    }
+
+    private static long retryAfterMillis(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            // Http dates are not used by S3
+            return -1;
+        }
+    }
+}
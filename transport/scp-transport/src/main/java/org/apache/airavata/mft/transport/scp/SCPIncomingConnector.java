@@ -20,6 +20,7 @@ package org.apache.airavata.mft.transport.scp;
 import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.Session;
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
 import org.apache.airavata.mft.core.api.IncomingStreamingConnector;
 import org.apache.airavata.mft.credential.stubs.scp.SCPSecret;
@@ -37,11 +38,17 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Optional;
 
 public final class SCPIncomingConnector implements IncomingStreamingConnector {
 
     private static final Logger logger = LoggerFactory.getLogger(SCPIncomingConnector.class);
 
+    // Files are read as a single stream over an SSH channel
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withPreferredConcurrency(1)
+            .build();
+
     private Session session;
     private GenericResource resource;
     private Channel channel;
@@ -142,7 +149,7 @@ public final class SCPIncomingConnector implements IncomingStreamingConnector {
         out = channel.getOutputStream();
         in = channel.getInputStream();
 
-        channel.connect();
+        SCPTransportUtil.connectChannel(channel);
 
         // send '\0'
         buf[0] = 0;
@@ -235,4 +242,14 @@ public final class SCPIncomingConnector implements IncomingStreamingConnector {
         }
         return b;
     }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getScpStorage().getStorageId());
+    }
 }
@@ -20,6 +20,7 @@ package org.apache.airavata.mft.transport.scp;
 import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.Session;
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
 import org.apache.airavata.mft.core.api.OutgoingStreamingConnector;
 import org.apache.airavata.mft.credential.stubs.scp.SCPSecret;
@@ -37,11 +38,18 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Optional;
 
 public final class SCPOutgoingConnector implements OutgoingStreamingConnector {
 
     private static final Logger logger = LoggerFactory.getLogger(SCPOutgoingConnector.class);
 
+    // Files are written as a single stream over an SSH channel
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withPreferredConcurrency(1)
+            .withOrderedParts(true)
+            .build();
+
     private GenericResource resource;
     private Session session;
     private OutputStream out;
@@ -147,7 +155,7 @@ public final class SCPOutgoingConnector implements OutgoingStreamingConnector {
         out = channel.getOutputStream();
         in = channel.getInputStream();
 
-        channel.connect();
+        SCPTransportUtil.connectChannel(channel);
 
         if (checkAck(in) != 0) {
             throw new IOException("Error code found in ack " + (checkAck(in)));
@@ -229,4 +237,14 @@ public final class SCPOutgoingConnector implements OutgoingStreamingConnector {
         }
         return b;
     }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getScpStorage().getStorageId());
+    }
 }
@@ -17,9 +17,11 @@
 
 package org.apache.airavata.mft.transport.scp;
 
+import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
+import org.apache.airavata.mft.core.EndpointThrottledException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,4 +52,19 @@ public class SCPTransportUtil {
             throw new Exception(message, e);
         }
     }
+
+    /**
+     * Connects a channel of the session. A channel the server refuses to open, which is what sshd does once the
+     * MaxSessions limit of the connection is reached, is reported as a throttled request
+     */
+    public static void connectChannel(Channel channel) throws Exception {
+        try {
+            channel.connect();
+        } catch (JSchException e) {
+            if (e.getMessage() != null && e.getMessage().contains("channel is not opened")) {
+                throw new EndpointThrottledException("SSH server refused to open a channel", e);
+            }
+            throw e;
+        }
+    }
 }
@@ -17,6 +17,7 @@
 
 package org.apache.airavata.mft.transport.swift;
 
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
 import org.apache.airavata.mft.core.api.IncomingChunkedConnector;
 import org.apache.airavata.mft.credential.stubs.swift.SwiftSecret;
@@ -43,12 +44,18 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.StandardCopyOption;
+import java.util.Optional;
 import java.util.Properties;
 
 public class SwiftIncomingConnector implements IncomingChunkedConnector {
 
     private static final Logger logger = LoggerFactory.getLogger(SwiftIncomingConnector.class);
 
+    // Objects are read with ranged GETs
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withRangeReads(true)
+            .build();
+
     private GenericResource resource;
     private SwiftApi swiftApi;
     private ObjectApi objectApi;
@@ -150,4 +157,14 @@ public class SwiftIncomingConnector implements IncomingChunkedConnector {
 
         return swiftObject.getPayload().openStream();
     }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getSwiftStorage().getStorageId());
+    }
 }
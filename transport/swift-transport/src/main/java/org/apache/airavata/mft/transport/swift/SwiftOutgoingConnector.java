@@ -17,8 +17,11 @@
 
 package org.apache.airavata.mft.transport.swift;
 
+import org.apache.airavata.mft.core.api.ChecksumReportingConnector;
+import org.apache.airavata.mft.core.api.ConnectorCapabilities;
 import org.apache.airavata.mft.core.api.ConnectorConfig;
-import org.apache.airavata.mft.core.api.OutgoingChunkedConnector;
+import org.apache.airavata.mft.core.api.ResumableOutgoingChunkedConnector;
+import org.apache.airavata.mft.core.api.UploadedChunk;
 import org.apache.airavata.mft.credential.stubs.swift.SwiftSecret;
 import org.apache.airavata.mft.credential.stubs.swift.SwiftSecretGetRequest;
 import org.apache.airavata.mft.resource.client.ResourceServiceClient;
@@ -45,16 +48,23 @@ import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class SwiftOutgoingConnector implements OutgoingChunkedConnector {
+public class SwiftOutgoingConnector implements ResumableOutgoingChunkedConnector, ChecksumReportingConnector {
 
     private static final Logger logger = LoggerFactory.getLogger(SwiftOutgoingConnector.class);
 
+    // Default max_manifest_segments and max_file_size of a static large object
+    private static final ConnectorCapabilities CAPABILITIES = ConnectorCapabilities.Builder.newBuilder()
+            .withMaxPartSize(5 * 1024 * 1024 * 1024L)
+            .withMaxPartCount(1000)
+            .build();
+
     private GenericResource resource;
     private SwiftApi swiftApi;
     private ObjectApi objectApi;
     private StaticLargeObjectApi staticLargeObjectApi;
 
     private final Map<Integer, Segment> segmentMap = new ConcurrentHashMap();
+    private volatile String manifestETag;
 
     // Referring to https://www.mirantis.com/blog/large-objects-in-cloud-storages/
 
@@ -116,6 +126,30 @@ public class SwiftOutgoingConnector implements OutgoingChunkedConnector {
         }
     }
 
+    @Override
+    public String getUploadSessionId() throws Exception {
+        // Segments are independent objects so there is no session to track
+        return "";
+    }
+
+    @Override
+    public String getChunkTag(int chunkId) {
+        Segment segment = segmentMap.get(chunkId);
+        return segment == null ? null : segment.getEtag();
+    }
+
+    @Override
+    public boolean resumeUploadSession(String uploadSessionId, List<UploadedChunk> uploadedChunks) throws Exception {
+        for (UploadedChunk chunk : uploadedChunks) {
+            segmentMap.put(chunk.getChunkId(), Segment.builder().etag(chunk.getTag())
+                    .path(resource.getFile().getResourcePath() + chunk.getChunkId())
+                    .sizeBytes(chunk.getEndByte() - chunk.getStartByte()).build());
+        }
+        logger.info("Resumed static large object upload for {} with {} uploaded segments",
+                resource.getFile().getResourcePath(), uploadedChunks.size());
+        return true;
+    }
+
     @Override
     public void complete() throws Exception {
 
@@ -124,7 +158,7 @@ public class SwiftOutgoingConnector implements OutgoingChunkedConnector {
             segments.add(segmentMap.get(id));
         }
 
-        String etag = staticLargeObjectApi.replaceManifest(resource.getFile().getResourcePath(),
+        manifestETag = staticLargeObjectApi.replaceManifest(resource.getFile().getResourcePath(),
                 segments, new HashMap<>());
 
         if (swiftApi != null) {
@@ -151,4 +185,24 @@ public class SwiftOutgoingConnector implements OutgoingChunkedConnector {
                 .sizeBytes(endByte - startByte).build();
         segmentMap.put(chunkId, segment);
     }
+
+    @Override
+    public String getChecksumAlgorithm() {
+        return MD5_OF_SEGMENT_MD5S;
+    }
+
+    @Override
+    public Optional<String> getUploadedChecksum() {
+        return Optional.ofNullable(manifestETag);
+    }
+
+    @Override
+    public ConnectorCapabilities getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Optional<String> getStorageId() {
+        return Optional.of(resource.getSwiftStorage().getStorageId());
+    }
 }